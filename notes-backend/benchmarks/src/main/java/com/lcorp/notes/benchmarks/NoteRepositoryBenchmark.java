@@ -0,0 +1,169 @@
+package com.lcorp.notes.benchmarks;
+
+import com.lcorp.notes.NotesBackendApplication;
+import com.lcorp.notes.dto.NoteSummaryResponse;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.User;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import com.lcorp.notes.repository.UserRepository;
+import com.lcorp.notes.service.DatabaseWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// NoteRepository's read queries against a temporary database: one measured
+// user plus enough other users that owner filtering has something to skip.
+// Starts the real application (without the web server) so the schema,
+// schema.sql indexes and storage mode are exactly what production runs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteRepositoryBenchmark {
+
+    private static final int OTHER_USERS = 20;
+    private static final int NOTES_PER_OTHER_USER = 500;
+    private static final int FOLDERS_PER_USER = 20;
+    private static final int SEED_CHUNK = 1000;
+
+    @Param({"default", "wal"})
+    public String storageMode;
+
+    @Param({"2000"})
+    public int notesPerUser;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private NoteRepository noteRepository;
+
+    private Long ownerId;
+    private Long folderId;
+    private Long noteId;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("notes-bench");
+
+        // Arguments, so they win over the application.properties packaged in the backend jar
+        context = new SpringApplicationBuilder(NotesBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:sqlite:" + directory.resolve("bench.sqlite3"),
+                        "--notes.storage.mode=" + storageMode,
+                        // Relative to notes-backend/benchmarks unless -Dfirebase.config.path=... is given
+                        "--firebase.config.path=" + System.getProperty("firebase.config.path",
+                                "../lcorpnotes-firebase-adminsdk-fbsvc-a54743967f.json"),
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+
+        noteRepository = context.getBean(NoteRepository.class);
+        seed();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private void seed() {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        FolderRepository folderRepository = context.getBean(FolderRepository.class);
+        DatabaseWriter databaseWriter = context.getBean(DatabaseWriter.class);
+
+        for (int u = 0; u <= OTHER_USERS; u++) {
+            int index = u;
+            User user = databaseWriter.write(() -> {
+                User created = new User();
+                created.setEmail("bench" + index + "@example.com");
+                created.setName("Bench " + index);
+                created.setPasswordHash("");
+                return userRepository.save(created);
+            });
+
+            List<Folder> folders = databaseWriter.write(() -> {
+                List<Folder> created = new ArrayList<>();
+                for (int f = 0; f < FOLDERS_PER_USER; f++) {
+                    Folder folder = new Folder();
+                    folder.setName("Folder " + f);
+                    folder.setOwner(user);
+                    created.add(folder);
+                }
+                return folderRepository.saveAll(created);
+            });
+
+            int count = u == 0 ? notesPerUser : NOTES_PER_OTHER_USER;
+            List<Note> notes = SampleNotes.notes(count, user, folders, u);
+            for (int from = 0; from < notes.size(); from += SEED_CHUNK) {
+                List<Note> chunk = notes.subList(from, Math.min(from + SEED_CHUNK, notes.size()));
+                databaseWriter.write(() -> noteRepository.saveAll(chunk));
+            }
+
+            if (u == 0) {
+                ownerId = user.getId();
+                folderId = folders.get(0).getId();
+                noteId = notes.get(notes.size() / 2).getId();
+            }
+        }
+
+        // Saving stamps every note with the same moment; spread them out so
+        // ordering by updated_at is not a no-op
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        databaseWriter.write(() -> jdbcTemplate.update(
+                "UPDATE notes SET updated_at = updated_at - (id * 7919 % 100000) * 60000"));
+    }
+
+    @Benchmark
+    public List<Note> findByOwnerIdOrderByUpdatedAtDesc() {
+        return noteRepository.findByOwnerIdOrderByUpdatedAtDesc(ownerId);
+    }
+
+    @Benchmark
+    public List<Note> findByOwnerIdAndFolderIdOrderByUpdatedAtDesc() {
+        return noteRepository.findByOwnerIdAndFolderIdOrderByUpdatedAtDesc(ownerId, folderId);
+    }
+
+    @Benchmark
+    public List<Note> findByOwnerIdAndIsFavoriteTrueOrderByUpdatedAtDesc() {
+        return noteRepository.findByOwnerIdAndIsFavoriteTrueOrderByUpdatedAtDesc(ownerId);
+    }
+
+    @Benchmark
+    public List<NoteSummaryResponse> findSummariesFirstPage() {
+        return noteRepository.findSummaries(ownerId, null, false, null, 51);
+    }
+
+    @Benchmark
+    public Optional<Note> findByIdAndOwnerId() {
+        return noteRepository.findByIdAndOwnerId(noteId, ownerId);
+    }
+}
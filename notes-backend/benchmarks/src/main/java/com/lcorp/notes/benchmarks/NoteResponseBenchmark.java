@@ -0,0 +1,86 @@
+package com.lcorp.notes.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcorp.notes.dto.NoteResponse;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// The response side of GET /api/notes: entity to DTO mapping as listNotes
+// does it, then Jackson writing the list.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class NoteResponseBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Note> notes;
+    private List<NoteResponse> responses;
+
+    @Setup
+    public void setUp() {
+        // Configured the way Spring Boot configures the application's mapper
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+
+        User owner = new User();
+        owner.setId(1L);
+
+        List<Folder> folders = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            Folder folder = new Folder();
+            folder.setId(id);
+            folder.setOwner(owner);
+            folders.add(folder);
+        }
+
+        notes = SampleNotes.notes(size, owner, folders, 42);
+        for (int i = 0; i < notes.size(); i++) {
+            notes.get(i).setId(i + 1L);
+            notes.get(i).setChangeVersion(i + 1L);
+        }
+        responses = map();
+    }
+
+    @Benchmark
+    public List<NoteResponse> map() {
+        return notes.stream()
+                .map(NoteResponse::of)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(map());
+    }
+}
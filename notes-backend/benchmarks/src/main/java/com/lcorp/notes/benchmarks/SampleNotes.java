@@ -0,0 +1,67 @@
+package com.lcorp.notes.benchmarks;
+
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic notes shaped like real ones: short titles, bodies from a
+// sentence to a few kilobytes, most of them filed in a folder, some starred.
+final class SampleNotes {
+
+    private static final String[] WORDS = {
+            "meeting", "project", "deadline", "review", "draft", "budget", "call", "idea",
+            "follow", "up", "with", "the", "team", "about", "next", "week", "plan", "list",
+            "groceries", "recipe", "book", "notes", "chapter", "summary", "release", "bug",
+            "fix", "customer", "feedback", "design", "sketch", "travel", "flight", "hotel"
+    };
+
+    private SampleNotes() {
+    }
+
+    static List<Note> notes(int count, User owner, List<Folder> folders, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime now = LocalDateTime.now();
+        List<Note> notes = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Note note = new Note();
+            note.setTitle(words(random, 2 + random.nextInt(5)));
+            note.setContent(body(random));
+            note.setIsFavorite(random.nextInt(10) == 0);
+            note.setOwner(owner);
+            if (!folders.isEmpty() && random.nextInt(5) != 0) {
+                note.setFolder(folders.get(random.nextInt(folders.size())));
+            }
+            note.setCreatedAt(now.minusMinutes(count - i));
+            note.setUpdatedAt(now.minusMinutes(count - i));
+            notes.add(note);
+        }
+        return notes;
+    }
+
+    // Mostly short notes with a long tail of big ones
+    private static String body(Random random) {
+        int length = random.nextInt(4) == 0 ? 1_000 + random.nextInt(4_000) : 40 + random.nextInt(600);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(words(random, 5 + random.nextInt(10))).append(random.nextInt(3) == 0 ? ".\n" : ". ");
+        }
+        return text.toString();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
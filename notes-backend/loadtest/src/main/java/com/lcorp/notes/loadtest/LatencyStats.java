@@ -0,0 +1,102 @@
+package com.lcorp.notes.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Response times per endpoint (method plus route pattern), in microseconds.
+// Nothing is recorded until start(), so warmup traffic stays out of the report.
+class LatencyStats {
+
+    private static final long MAX_TRACKED_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+    private long startedAt;
+    private long stoppedAt;
+
+    private static class Endpoint {
+        final Histogram latency = new ConcurrentHistogram(MAX_TRACKED_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+    }
+
+    void start() {
+        startedAt = System.nanoTime();
+        recording = true;
+    }
+
+    void stop() {
+        recording = false;
+        stoppedAt = System.nanoTime();
+    }
+
+    void record(String endpoint, long startNanos, boolean ok) {
+        if (!recording) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, name -> new Endpoint());
+        stats.latency.recordValue(Math.min(micros, MAX_TRACKED_MICROS));
+        if (!ok) {
+            stats.errors.increment();
+        }
+    }
+
+    List<Map<String, Object>> rows() {
+        double seconds = (stoppedAt - startedAt) / 1e9;
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        Histogram total = new Histogram(MAX_TRACKED_MICROS, 3);
+        long totalErrors = 0;
+        for (String name : endpoints.keySet().stream().sorted().toList()) {
+            Endpoint stats = endpoints.get(name);
+            total.add(stats.latency);
+            totalErrors += stats.errors.sum();
+            rows.add(row(name, stats.latency, stats.errors.sum(), seconds));
+        }
+        rows.add(row("TOTAL", total, totalErrors, seconds));
+        return rows;
+    }
+
+    private static Map<String, Object> row(String name, Histogram latency, long errors, double seconds) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("endpoint", name);
+        row.put("requests", latency.getTotalCount());
+        row.put("errors", errors);
+        row.put("throughputPerSecond", latency.getTotalCount() / seconds);
+        row.put("p50Ms", latency.getValueAtPercentile(50) / 1000.0);
+        row.put("p99Ms", latency.getValueAtPercentile(99) / 1000.0);
+        row.put("p999Ms", latency.getValueAtPercentile(99.9) / 1000.0);
+        row.put("maxMs", latency.getMaxValue() / 1000.0);
+        return row;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-34s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map<String, Object> row : rows()) {
+            out.printf("%-34s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.get("endpoint"), row.get("requests"), row.get("errors"), row.get("throughputPerSecond"),
+                    row.get("p50Ms"), row.get("p99Ms"), row.get("p999Ms"), row.get("maxMs"));
+        }
+    }
+
+    void writeJson(Path file, Map<String, Object> settings) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", settings);
+        result.put("endpoints", rows());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), result);
+    }
+}
@@ -0,0 +1,183 @@
+package com.lcorp.notes.loadtest;
+
+import com.lcorp.notes.NotesBackendApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+// Boots the backend on a random port against a fresh SQLite file, signs in a
+// crowd of virtual users (some with our own JWTs, some with Firebase ID tokens
+// from StubFirebaseIssuer), lets them work through warmup and a measured
+// window, then reports throughput and p50/p99/p99.9 per endpoint.
+//
+// This is a closed model: each user waits for a response before sending the
+// next request, so under overload latency shows up as lower throughput.
+//
+// Options (all optional):
+//   -users 32             concurrent virtual users
+//   -firebase-share 0.5   fraction of users signing in with Firebase tokens
+//   -warmup 15            seconds of traffic before measuring
+//   -duration 60          seconds measured
+//   -think-ms 200         max pause between actions (uniform from 0)
+//   -autosave-ms 250      pause between the PUTs of an autosave burst
+//   -notes 40             notes per user, -folders 5 folders per user
+//   -storage-mode wal     notes.storage.mode of the backend
+//   -seed 1               seed for every random choice
+//   -out file.json        also write the report as JSON
+public class LoadTest {
+
+    record Settings(int users, double firebaseShare, int warmupSeconds, int durationSeconds,
+                    int thinkMillis, int autosaveMillis, int notesPerUser, int foldersPerUser,
+                    String storageMode, long seed, Path out) {
+
+        static Settings parse(String[] args) {
+            Map<String, String> options = new LinkedHashMap<>();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                if (!args[i].startsWith("-")) {
+                    throw new IllegalArgumentException("Expected an option, got " + args[i]);
+                }
+                options.put(args[i].substring(1), args[i + 1]);
+            }
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException("Missing value for " + args[args.length - 1]);
+            }
+
+            return new Settings(
+                    Integer.parseInt(options.getOrDefault("users", "32")),
+                    Double.parseDouble(options.getOrDefault("firebase-share", "0.5")),
+                    Integer.parseInt(options.getOrDefault("warmup", "15")),
+                    Integer.parseInt(options.getOrDefault("duration", "60")),
+                    Integer.parseInt(options.getOrDefault("think-ms", "200")),
+                    Integer.parseInt(options.getOrDefault("autosave-ms", "250")),
+                    Integer.parseInt(options.getOrDefault("notes", "40")),
+                    Integer.parseInt(options.getOrDefault("folders", "5")),
+                    options.getOrDefault("storage-mode", "wal"),
+                    Long.parseLong(options.getOrDefault("seed", "1")),
+                    options.containsKey("out") ? Path.of(options.get("out")) : null);
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("users", users);
+            settings.put("firebaseShare", firebaseShare);
+            settings.put("warmupSeconds", warmupSeconds);
+            settings.put("durationSeconds", durationSeconds);
+            settings.put("thinkMillis", thinkMillis);
+            settings.put("autosaveMillis", autosaveMillis);
+            settings.put("notesPerUser", notesPerUser);
+            settings.put("foldersPerUser", foldersPerUser);
+            settings.put("storageMode", storageMode);
+            settings.put("seed", seed);
+            settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+            return settings;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        Path directory = Files.createTempDirectory("notes-loadtest");
+
+        try (StubFirebaseIssuer issuer = new StubFirebaseIssuer("notes-loadtest", directory);
+             ConfigurableApplicationContext context = boot(settings, issuer, directory)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            run(settings, issuer, "http://127.0.0.1:" + port);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+        // Scheduled tasks and HTTP client threads would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    // Command-line style arguments so they win over the packaged application.properties
+    private static ConfigurableApplicationContext boot(Settings settings, StubFirebaseIssuer issuer, Path directory) {
+        return new SpringApplicationBuilder(NotesBackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=-1",
+                "--spring.datasource.url=jdbc:sqlite:" + directory.resolve("loadtest.sqlite3"),
+                "--notes.storage.mode=" + settings.storageMode(),
+                "--firebase.project-id=" + issuer.projectId(),
+                "--firebase.keys.url=" + issuer.keysUrl(),
+                // Only read to build the (unused) FirebaseApp; relative to notes-backend/loadtest
+                "--firebase.config.path=" + System.getProperty("firebase.config.path",
+                        "../lcorpnotes-firebase-adminsdk-fbsvc-a54743967f.json"),
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+    }
+
+    private static void run(Settings settings, StubFirebaseIssuer issuer, String baseUrl) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        LatencyStats stats = new LatencyStats();
+
+        int firebaseUsers = (int) Math.round(settings.users() * settings.firebaseShare());
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < settings.users(); i++) {
+            users.add(new VirtualUser(i, i < firebaseUsers, client, baseUrl, stats, issuer, settings));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(settings.users());
+        try {
+            System.out.printf("Setting up %d users (%d via Firebase) against %s%n", settings.users(), firebaseUsers, baseUrl);
+            List<Future<?>> setUps = new ArrayList<>();
+            for (VirtualUser user : users) {
+                setUps.add(executor.submit(() -> {
+                    user.setUp();
+                    return null;
+                }));
+            }
+            for (Future<?> setUp : setUps) {
+                setUp.get();
+            }
+
+            long warmupEnd = System.nanoTime() + Duration.ofSeconds(settings.warmupSeconds()).toNanos();
+            long end = warmupEnd + Duration.ofSeconds(settings.durationSeconds()).toNanos();
+            List<Future<?>> runs = new ArrayList<>();
+            for (VirtualUser user : users) {
+                runs.add(executor.submit(() -> {
+                    user.runUntil(end);
+                    return null;
+                }));
+            }
+
+            System.out.printf("Warming up for %ds, then measuring for %ds%n", settings.warmupSeconds(), settings.durationSeconds());
+            Thread.sleep(Duration.ofSeconds(settings.warmupSeconds()).toMillis());
+            stats.start();
+            Thread.sleep(Math.max(0, (end - System.nanoTime()) / 1_000_000));
+            stats.stop();
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        System.out.println();
+        stats.print(System.out);
+        if (settings.out() != null) {
+            stats.writeJson(settings.out(), settings.describe());
+            System.out.println();
+            System.out.println("Report written to " + settings.out());
+        }
+    }
+}
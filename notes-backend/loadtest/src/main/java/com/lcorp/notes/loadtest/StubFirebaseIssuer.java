@@ -0,0 +1,110 @@
+package com.lcorp.notes.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+// Stands in for Google's side of Firebase Auth: publishes a signing
+// certificate in the same JSON shape as the securetoken endpoint and mints ID
+// tokens signed with its key. Pointing firebase.keys.url at keysUrl() makes
+// FirebaseTokenVerifier accept them exactly as it would real ones.
+class StubFirebaseIssuer implements AutoCloseable {
+
+    private static final String KEY_ID = "loadtest-key";
+    private static final char[] STORE_PASSWORD = "loadtest".toCharArray();
+
+    private final String projectId;
+    private final PrivateKey privateKey;
+    private final HttpServer server;
+
+    StubFirebaseIssuer(String projectId, Path workDirectory) throws IOException, GeneralSecurityException, InterruptedException {
+        this.projectId = projectId;
+
+        // The JDK has no public API for issuing certificates, but keytool can
+        Path keyStoreFile = workDirectory.resolve("firebase-stub.p12");
+        Process keytool = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", KEY_ID, "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=firebase-stub", "-validity", "2",
+                "-storetype", "PKCS12", "-keystore", keyStoreFile.toString(),
+                "-storepass", new String(STORE_PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        byte[] output = keytool.getInputStream().readAllBytes();
+        if (keytool.waitFor() != 0) {
+            throw new IOException("keytool failed: " + new String(output, StandardCharsets.UTF_8));
+        }
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStoreFile)) {
+            keyStore.load(in, STORE_PASSWORD);
+        }
+        privateKey = (PrivateKey) keyStore.getKey(KEY_ID, STORE_PASSWORD);
+        byte[] keysJson = keysJson(keyStore.getCertificate(KEY_ID));
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/keys", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, keysJson.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(keysJson);
+            }
+        });
+        server.start();
+    }
+
+    String keysUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/keys";
+    }
+
+    String projectId() {
+        return projectId;
+    }
+
+    String mintToken(String uid, String email, String name) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .header().keyId(KEY_ID).and()
+                .issuer("https://securetoken.google.com/" + projectId)
+                .audience().add(projectId).and()
+                .subject(uid)
+                .claim("email", email)
+                .claim("email_verified", true)
+                .claim("name", name)
+                .issuedAt(Date.from(now))
+                .claim("auth_time", now.getEpochSecond())
+                .expiration(Date.from(now.plus(Duration.ofHours(1))))
+                .signWith(privateKey, Jwts.SIG.RS256)
+                .compact();
+    }
+
+    private static byte[] keysJson(Certificate certificate) throws GeneralSecurityException, IOException {
+        String pem = "-----BEGIN CERTIFICATE-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(certificate.getEncoded())
+                + "\n-----END CERTIFICATE-----\n";
+        return new ObjectMapper().writeValueAsBytes(Map.of(KEY_ID, pem));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,206 @@
+package com.lcorp.notes.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// One user of the web app, doing what the frontend does: signing in, opening
+// the note list, browsing folders, starring notes and, most of all, typing
+// into a note while autosave sends a PUT every few hundred milliseconds.
+// Every choice comes from a Random seeded per user, so runs are repeatable.
+class VirtualUser {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final String[] SENTENCES = {
+            "Follow up with the team about the release plan. ",
+            "Remember to book the flight before prices go up. ",
+            "Draft the summary for chapter three and send it for review. ",
+            "Groceries: eggs, rice, tomatoes, coffee, oat milk. ",
+            "Idea: keep the design sketches in one shared folder. "
+    };
+
+    private final int index;
+    private final boolean firebase;
+    private final HttpClient client;
+    private final String baseUrl;
+    private final LatencyStats stats;
+    private final StubFirebaseIssuer issuer;
+    private final LoadTest.Settings settings;
+    private final Random random;
+
+    private final String email;
+    private final String password = "loadtest-password";
+    private String token;
+    private final List<Long> noteIds = new ArrayList<>();
+    private final List<Long> folderIds = new ArrayList<>();
+
+    VirtualUser(int index, boolean firebase, HttpClient client, String baseUrl, LatencyStats stats,
+                StubFirebaseIssuer issuer, LoadTest.Settings settings) {
+        this.index = index;
+        this.firebase = firebase;
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.stats = stats;
+        this.issuer = issuer;
+        this.settings = settings;
+        this.random = new Random(settings.seed() * 1_000_003L + index);
+        this.email = "loadtest" + index + "@example.com";
+    }
+
+    // Account, folders and notes to work with; runs before any stats are recorded
+    void setUp() throws IOException, InterruptedException {
+        if (!firebase) {
+            send("POST /api/auth/register", post("/api/auth/register",
+                    Map.of("email", email, "name", "Load Test " + index, "password", password)));
+        }
+        login();
+
+        for (int i = 0; i < settings.foldersPerUser(); i++) {
+            JsonNode folder = send("POST /api/folders", post("/api/folders", Map.of("name", "Folder " + i)));
+            folderIds.add(folder.get("id").asLong());
+        }
+
+        List<Map<String, Object>> operations = new ArrayList<>();
+        for (int i = 0; i < settings.notesPerUser(); i++) {
+            operations.add(Map.of(
+                    "op", "create",
+                    "title", "Note " + i,
+                    "content", text(2 + random.nextInt(20)),
+                    "folderId", folderIds.get(random.nextInt(folderIds.size()))));
+        }
+        JsonNode results = send("POST /api/notes/batch", post("/api/notes/batch", Map.of("operations", operations)));
+        for (JsonNode result : results) {
+            noteIds.add(result.get("id").asLong());
+        }
+    }
+
+    void runUntil(long deadlineNanos) throws InterruptedException {
+        while (System.nanoTime() < deadlineNanos) {
+            int roll = random.nextInt(100);
+            try {
+                if (roll < 5) {
+                    login();
+                } else if (roll < 25) {
+                    listNotes();
+                } else if (roll < 55) {
+                    autosaveBurst();
+                } else if (roll < 80) {
+                    browseFolder();
+                } else {
+                    favorites();
+                }
+            } catch (IOException e) {
+                // Already counted as an error against the endpoint that failed
+            }
+            Thread.sleep(random.nextInt(settings.thinkMillis() + 1));
+        }
+    }
+
+    private void login() throws IOException, InterruptedException {
+        if (firebase) {
+            String idToken = issuer.mintToken("uid-" + index, email, "Load Test " + index);
+            send("POST /api/auth/firebase-login", post("/api/auth/firebase-login", Map.of("idToken", idToken)));
+            token = idToken;
+        } else {
+            JsonNode response = send("POST /api/auth/login", post("/api/auth/login",
+                    Map.of("email", email, "password", password)));
+            token = response.get("accessToken").asText();
+        }
+    }
+
+    private void listNotes() throws IOException, InterruptedException {
+        send("GET /api/notes", get("/api/notes"));
+    }
+
+    private void autosaveBurst() throws IOException, InterruptedException {
+        long noteId = pick(noteIds);
+        StringBuilder content = new StringBuilder(text(5 + random.nextInt(20)));
+        send("GET /api/notes/{id}", get("/api/notes/" + noteId));
+
+        int saves = 3 + random.nextInt(8);
+        for (int i = 0; i < saves; i++) {
+            Thread.sleep(settings.autosaveMillis());
+            content.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            send("PUT /api/notes/{id}", put("/api/notes/" + noteId, Map.of("content", content.toString())));
+        }
+    }
+
+    private void browseFolder() throws IOException, InterruptedException {
+        send("GET /api/folders", get("/api/folders"));
+        JsonNode notes = send("GET /api/notes?folderId", get("/api/notes?folderId=" + pick(folderIds)));
+        if (notes.size() > 0) {
+            long noteId = notes.get(random.nextInt(notes.size())).get("id").asLong();
+            send("GET /api/notes/{id}", get("/api/notes/" + noteId));
+        }
+    }
+
+    private void favorites() throws IOException, InterruptedException {
+        send("GET /api/notes?favorite", get("/api/notes?favorite=true"));
+        if (random.nextBoolean()) {
+            send("POST /api/notes/{id}/favorite", post("/api/notes/" + pick(noteIds) + "/favorite", Map.of()));
+        }
+    }
+
+    private JsonNode send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            stats.record(endpoint, start, false);
+            throw e;
+        }
+        boolean ok = response.statusCode() < 400;
+        stats.record(endpoint, start, ok);
+        if (!ok) {
+            throw new IOException(endpoint + " returned HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return JSON.readTree(response.body());
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) throws IOException {
+        return request(path).POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body))).build();
+    }
+
+    private HttpRequest put(String path, Object body) throws IOException {
+        return request(path).PUT(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body))).build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private long pick(List<Long> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private String text(int sentences) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            text.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        return text.toString();
+    }
+}
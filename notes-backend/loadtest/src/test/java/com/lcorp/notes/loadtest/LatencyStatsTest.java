@@ -0,0 +1,30 @@
+package com.lcorp.notes.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyStatsTest {
+
+    @Test
+    void recordsOnlyBetweenStartAndStop() {
+        LatencyStats stats = new LatencyStats();
+        stats.record("GET /api/notes", System.nanoTime(), true);
+
+        stats.start();
+        stats.record("GET /api/notes", System.nanoTime(), true);
+        stats.record("GET /api/notes", System.nanoTime(), false);
+        stats.record("PUT /api/notes/{id}", System.nanoTime(), true);
+        stats.stop();
+        stats.record("PUT /api/notes/{id}", System.nanoTime(), true);
+
+        List<Map<String, Object>> rows = stats.rows();
+        assertThat(rows).extracting(row -> row.get("endpoint"))
+                .containsExactly("GET /api/notes", "PUT /api/notes/{id}", "TOTAL");
+        assertThat(rows).extracting(row -> row.get("requests")).containsExactly(2L, 1L, 3L);
+        assertThat(rows).extracting(row -> row.get("errors")).containsExactly(1L, 0L, 1L);
+    }
+}
@@ -0,0 +1,46 @@
+package com.lcorp.notes.loadtest;
+
+import com.lcorp.notes.security.FirebaseIdentity;
+import com.lcorp.notes.security.FirebaseTokenVerifier;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The load test signs users in with these tokens, so the backend's verifier
+// has to take them as it would real ones, keys fetched over HTTP and all
+class StubFirebaseIssuerTest {
+
+    @TempDir
+    Path workDirectory;
+
+    @Test
+    void tokensPassTheBackendVerifier() throws Exception {
+        try (StubFirebaseIssuer issuer = new StubFirebaseIssuer("loadtest-project", workDirectory)) {
+            FirebaseTokenVerifier verifier = new FirebaseTokenVerifier(issuer.projectId(), issuer.keysUrl());
+            verifier.refreshPublicKeys();
+
+            FirebaseIdentity identity = verifier.verify(issuer.mintToken("uid-1", "user@loadtest.local", "User"));
+
+            assertThat(identity.getUid()).isEqualTo("uid-1");
+            assertThat(identity.getEmail()).isEqualTo("user@loadtest.local");
+            assertThat(identity.isEmailVerified()).isTrue();
+            assertThat(identity.getName()).isEqualTo("User");
+        }
+    }
+
+    @Test
+    void tokensAreOnlyGoodForTheirProject() throws Exception {
+        try (StubFirebaseIssuer issuer = new StubFirebaseIssuer("loadtest-project", workDirectory)) {
+            FirebaseTokenVerifier verifier = new FirebaseTokenVerifier("other-project", issuer.keysUrl());
+            verifier.refreshPublicKeys();
+
+            assertThatThrownBy(() -> verifier.verify(issuer.mintToken("uid-1", "user@loadtest.local", "User")))
+                    .isInstanceOf(JwtException.class);
+        }
+    }
+}
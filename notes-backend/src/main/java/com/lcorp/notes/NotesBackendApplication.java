@@ -2,8 +2,10 @@ package com.lcorp.notes;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class NotesBackendApplication {
     public static void main(String[] args) {
         SpringApplication.run(NotesBackendApplication.class, args);
@@ -0,0 +1,34 @@
+package com.lcorp.notes.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Puts a ConnectionGate in front of the connection pool Spring Boot creates in
+// the default storage mode. WAL mode builds its own pools and gates the
+// readers itself (see SqliteStorageConfig).
+@Configuration
+@ConditionalOnProperty(name = "notes.storage.connection-gate.enabled", havingValue = "true")
+public class ConnectionGateConfig {
+
+    @Bean
+    static BeanPostProcessor connectionGatePostProcessor(Environment environment) {
+        Duration timeout = environment.getRequiredProperty("notes.storage.connection-gate.timeout", Duration.class);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    // Fills in Hikari's defaults; the pool size reads -1 until then
+                    pool.validate();
+                    return new ConnectionGate(pool, pool.getMaximumPoolSize(), timeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
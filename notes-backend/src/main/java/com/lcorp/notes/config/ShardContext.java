@@ -0,0 +1,37 @@
+package com.lcorp.notes.config;
+
+// The shard the current thread works on (see Shards). Requests enter their
+// user's shard in TokenAuthenticationFilter; code that runs elsewhere (writer
+// threads, streamed responses, scheduled jobs) enters one explicitly. Shard 0,
+// the original database file, is used when none has been entered, which is
+// what Hibernate and the startup code rely on.
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+
+    // try (ShardContext.Scope scope = ShardContext.enter(shard)) { ... }
+    public static Scope enter(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
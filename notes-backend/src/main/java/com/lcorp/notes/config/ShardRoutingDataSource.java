@@ -0,0 +1,13 @@
+package com.lcorp.notes.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// Sends every connection request to the data source of the current shard.
+// Keys are shard numbers; see ShardContext for how the current one is chosen.
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,78 @@
+package com.lcorp.notes.config;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Hibernate's ddl-auto and schema.sql only ever see the connection they are
+// given, which is shard 0's. With more shards, both are repeated on every
+// other shard, so a shard file is created and migrated like the main one.
+@Configuration
+@ConditionalOnExpression("${notes.storage.shards} > 1")
+public class ShardSchemaConfig {
+
+    @Bean
+    static HibernatePropertiesCustomizer shardSchemaIntegrator(@Value("${notes.storage.shards}") int shards) {
+        Integrator integrator = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                                  SessionFactoryImplementor sessionFactory) {
+                // Same moment as shard 0's schema action: once the factory is built
+                sessionFactory.addObserver(new SessionFactoryObserver() {
+                    @Override
+                    public void sessionFactoryCreated(SessionFactory factory) {
+                        for (int shard = 1; shard < shards; shard++) {
+                            try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                                SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                                        sessionFactory.getProperties(), action -> { });
+                            }
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory,
+                                     SessionFactoryServiceRegistry serviceRegistry) {
+            }
+        };
+        return properties -> properties.put(JpaSettings.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(integrator));
+    }
+
+    // Replaces the initializer Spring Boot would create; ordered after the
+    // entity manager factory the same way (spring.jpa.defer-datasource-initialization)
+    @Bean
+    SqlDataSourceScriptDatabaseInitializer dataSourceScriptDatabaseInitializer(DataSource dataSource,
+                                                                              SqlInitializationProperties properties,
+                                                                              Shards shards) {
+        return new SqlDataSourceScriptDatabaseInitializer(dataSource, properties) {
+            @Override
+            public boolean initializeDatabase() {
+                boolean initialized = false;
+                for (int shard = 0; shard < shards.count(); shard++) {
+                    try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                        initialized |= super.initializeDatabase();
+                    }
+                }
+                return initialized;
+            }
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package com.lcorp.notes.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// notes.storage.shards: users are spread over that many SQLite files, each
+// with its own write lock, so writes for users on different shards no longer
+// wait for each other. A user's rows (profile, folders, notes, tombstones,
+// import jobs) all live on the shard picked from their id; UserDirectory maps
+// emails to ids for sign-in. Shard 0 is spring.datasource.url itself, shard N
+// the same path with "-shardN" before the extension.
+//
+// The mapping is jump consistent hashing: raising the count moves only the
+// users the new shards take over. tools.ShardRebalance moves them offline.
+@Component
+public class Shards {
+
+    private final String baseUrl;
+    private final int count;
+    private final int busyTimeoutMs;
+
+    public Shards(@Value("${spring.datasource.url}") String baseUrl,
+                  @Value("${notes.storage.shards}") int count,
+                  @Value("${notes.storage.busy-timeout-ms}") int busyTimeoutMs) {
+        if (count < 1) {
+            throw new IllegalArgumentException("notes.storage.shards must be at least 1");
+        }
+        this.baseUrl = baseUrl;
+        this.count = count;
+        this.busyTimeoutMs = busyTimeoutMs;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public String url(int shard) {
+        return url(baseUrl, shard);
+    }
+
+    public int shardOf(Long userId) {
+        return shardOf(userId, count);
+    }
+
+    public ShardContext.Scope enter(Long userId) {
+        return ShardContext.enter(shardOf(userId));
+    }
+
+    // The largest value a single-value query returns on any shard, 0 if none.
+    // Runs on fresh read-only connections, never on the pools, so it can be
+    // called from inside a transaction (even on a writer thread) without
+    // waiting for a connection that transaction already holds.
+    public long max(String sql) {
+        return max(null, sql);
+    }
+
+    // The same, skipping shards that have no such table
+    public long max(String table, String sql) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout(busyTimeoutMs);
+
+        long max = 0;
+        for (int shard = 0; shard < count; shard++) {
+            try (Connection connection = config.createConnection(url(shard));
+                 Statement statement = connection.createStatement()) {
+                if (table != null && !hasTable(connection, table)) {
+                    continue;
+                }
+                try (ResultSet rows = statement.executeQuery(sql)) {
+                    if (rows.next()) {
+                        max = Math.max(max, rows.getLong(1));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Querying shard " + shard + " failed: " + sql, e);
+            }
+        }
+        return max;
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+
+    // Another database next to the main one, e.g. "-directory"
+    public String siblingUrl(String suffix) {
+        return withSuffix(baseUrl, suffix);
+    }
+
+    public static String url(String baseUrl, int shard) {
+        return shard == 0 ? baseUrl : withSuffix(baseUrl, "-shard" + shard);
+    }
+
+    private static String withSuffix(String baseUrl, String suffix) {
+        int query = baseUrl.indexOf('?');
+        String path = query >= 0 ? baseUrl.substring(0, query) : baseUrl;
+        String parameters = query >= 0 ? baseUrl.substring(query) : "";
+
+        int dot = path.lastIndexOf('.');
+        if (dot <= path.lastIndexOf('/') || dot <= path.lastIndexOf(':')) {
+            return path + suffix + parameters;
+        }
+        return path.substring(0, dot) + suffix + path.substring(dot) + parameters;
+    }
+
+    // Lamping and Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm".
+    // Changing this function moves users without moving their data.
+    public static int shardOf(long userId, int count) {
+        long key = userId;
+        long bucket = -1;
+        long next = 0;
+        while (next < count) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
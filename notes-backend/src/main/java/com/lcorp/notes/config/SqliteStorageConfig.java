@@ -0,0 +1,126 @@
+package com.lcorp.notes.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// notes.storage.mode=wal: the database runs in WAL mode with exactly one
+// writable connection, used by DatabaseWriter's group-commit thread, and a pool
+// of read-only connections that serve read-only transactions in parallel.
+//
+// With more than one shard (see Shards) every shard gets its own pools, in
+// either mode, behind a ShardRoutingDataSource. The default mode with a single
+// shard keeps the pool Spring Boot configures.
+@Configuration
+public class SqliteStorageConfig {
+
+    // What Hikari would use; Spring Boot's pool is not configured either
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    @ConditionalOnProperty(name = "notes.storage.mode", havingValue = "wal")
+    public DataSource dataSource(Shards shards,
+                                 @Value("${notes.storage.read-pool-size}") int readPoolSize,
+                                 @Value("${notes.storage.synchronous}") String synchronous,
+                                 @Value("${notes.storage.busy-timeout-ms}") int busyTimeoutMs,
+                                 @Value("${notes.storage.connection-gate.enabled}") boolean gateConnections,
+                                 @Value("${notes.storage.connection-gate.timeout}") Duration gateTimeout,
+                                 MeterRegistry meterRegistry) {
+        // The pools are not beans, so Spring Boot does not bind their metrics itself
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        Map<Object, Object> shardDataSources = new HashMap<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            String url = shards.url(shard);
+            String suffix = shards.count() > 1 ? "-" + shard : "";
+
+            SQLiteConfig writerConfig = new SQLiteConfig();
+            writerConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+            writerConfig.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(synchronous));
+            writerConfig.setBusyTimeout(busyTimeoutMs);
+            HikariDataSource writer = pool("sqlite-writer" + suffix, url, writerConfig, 1, false, metrics);
+
+            SQLiteConfig readerConfig = new SQLiteConfig();
+            readerConfig.setReadOnly(true);
+            readerConfig.setBusyTimeout(busyTimeoutMs);
+            HikariDataSource reader = pool("sqlite-reader" + suffix, url, readerConfig, readPoolSize, true, metrics);
+
+            // Only reads need the gate: every write already queues for the writer thread
+            DataSource readers = gateConnections ? new ConnectionGate(reader, readPoolSize, gateTimeout) : reader;
+
+            ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+            routing.setTargetDataSources(Map.of(
+                    ReadWriteRoutingDataSource.WRITER, writer,
+                    ReadWriteRoutingDataSource.READER, readers));
+            routing.setDefaultTargetDataSource(writer);
+            routing.afterPropertiesSet();
+            shardDataSources.put(shard, routing);
+        }
+
+        return new LazyConnectionDataSourceProxy(route(shardDataSources));
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${notes.storage.mode}' != 'wal' and ${notes.storage.shards} > 1")
+    public DataSource shardedDataSource(Shards shards,
+                                        @Value("${notes.storage.busy-timeout-ms}") int busyTimeoutMs,
+                                        @Value("${notes.storage.connection-gate.enabled}") boolean gateConnections,
+                                        @Value("${notes.storage.connection-gate.timeout}") Duration gateTimeout,
+                                        MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        Map<Object, Object> shardDataSources = new HashMap<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            SQLiteConfig config = new SQLiteConfig();
+            config.setBusyTimeout(busyTimeoutMs);
+            HikariDataSource pool = pool("sqlite-" + shard, shards.url(shard), config, DEFAULT_POOL_SIZE, false, metrics);
+            shardDataSources.put(shard, gateConnections ? new ConnectionGate(pool, DEFAULT_POOL_SIZE, gateTimeout) : pool);
+        }
+
+        // Shard routing happens when the connection is taken, which is at the
+        // start of the transaction; the shard is known well before that
+        return route(shardDataSources);
+    }
+
+    private static DataSource route(Map<Object, Object> shardDataSources) {
+        if (shardDataSources.size() == 1) {
+            return (DataSource) shardDataSources.get(0);
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(shardDataSources);
+        routing.setDefaultTargetDataSource(shardDataSources.get(0));
+        // An unknown shard is a bug, not a reason to fall back to shard 0
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private static HikariDataSource pool(String name, String url, SQLiteConfig config, int size, boolean readOnly,
+                                         MicrometerMetricsTrackerFactory metrics) {
+        SQLiteDataSource sqlite = new SQLiteDataSource(config);
+        sqlite.setUrl(url);
+
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setDataSource(sqlite);
+        pool.setMaximumPoolSize(size);
+        pool.setMinimumIdle(size);
+        // SQLite fixes read-only when the connection is opened; keep Hikari in agreement
+        pool.setReadOnly(readOnly);
+        pool.setMetricsTrackerFactory(metrics);
+        return pool;
+    }
+}
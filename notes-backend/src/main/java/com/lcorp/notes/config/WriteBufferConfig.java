@@ -0,0 +1,45 @@
+package com.lcorp.notes.config;
+
+import com.lcorp.notes.service.NoteWriteBuffer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Writes the current user's buffered note updates (see NoteWriteBuffer) before
+// any request of theirs is handled, except the note updates the buffer takes;
+// NoteController flushes for the ones it does not
+@Configuration
+@ConditionalOnProperty(name = "notes.write-buffer.enabled", havingValue = "true")
+public class WriteBufferConfig implements WebMvcConfigurer {
+
+    private static final String BUFFERED_PATTERN = "/api/notes/{noteId}";
+
+    private final NoteWriteBuffer noteWriteBuffer;
+
+    public WriteBufferConfig(NoteWriteBuffer noteWriteBuffer) {
+        this.noteWriteBuffer = noteWriteBuffer;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+                boolean buffered = "PUT".equals(request.getMethod())
+                        && BUFFERED_PATTERN.equals(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+                if (auth != null && auth.getPrincipal() instanceof Long userId && !buffered) {
+                    noteWriteBuffer.flush(userId);
+                }
+                return true;
+            }
+        });
+    }
+}
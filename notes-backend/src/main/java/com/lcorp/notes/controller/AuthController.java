@@ -2,11 +2,13 @@ package com.lcorp.notes.controller;
 
 import com.lcorp.notes.dto.*;
 import com.lcorp.notes.model.User;
-import com.lcorp.notes.repository.UserRepository;
 import com.lcorp.notes.security.JwtUtil;
+import com.lcorp.notes.security.PasswordHashingPool;
+import com.lcorp.notes.security.PasswordHashingPool.HashingRejectedException;
+import com.lcorp.notes.service.UserDirectory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -16,15 +18,15 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final UserDirectory userDirectory;
+    private final PasswordHashingPool passwordHashing;
     private final JwtUtil jwtUtil;
 
-    public AuthController(UserRepository userRepository,
-                          PasswordEncoder passwordEncoder,
+    public AuthController(UserDirectory userDirectory,
+                          PasswordHashingPool passwordHashing,
                           JwtUtil jwtUtil) {
-        this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.userDirectory = userDirectory;
+        this.passwordHashing = passwordHashing;
         this.jwtUtil = jwtUtil;
     }
 
@@ -39,17 +41,18 @@ public class AuthController {
                     .body(Map.of("error", "Missing required fields"));
         }
 
-        if (userRepository.existsByEmail(email)) {
+        if (userDirectory.exists(email)) {
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(Map.of("error", "Email already registered"));
         }
 
-        User user = new User();
-        user.setEmail(email);
-        user.setName(name);
-        user.setPasswordHash(passwordEncoder.encode(password));
+        String passwordHash = passwordHashing.encode(password);
 
-        userRepository.save(user);
+        // Null if someone registered the email while we were hashing
+        if (userDirectory.create(email, name, passwordHash) == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Email already registered"));
+        }
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(Map.of("message", "Registered"));
@@ -60,9 +63,9 @@ public class AuthController {
         String email = request.getEmail() != null ? request.getEmail().trim().toLowerCase() : "";
         String password = request.getPassword() != null ? request.getPassword() : "";
 
-        User user = userRepository.findByEmail(email).orElse(null);
+        User user = userDirectory.findByEmail(email).orElse(null);
 
-        if (user == null || !passwordEncoder.matches(password, user.getPasswordHash())) {
+        if (user == null || !passwordHashing.matches(password, user.getPasswordHash())) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid credentials"));
         }
@@ -80,4 +83,12 @@ public class AuthController {
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    // Password hashing is at capacity (see PasswordHashingPool)
+    @ExceptionHandler(HashingRejectedException.class)
+    public ResponseEntity<?> hashingRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Too many requests, try again shortly"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.lcorp.notes.controller;
+
+import com.lcorp.notes.service.TitleIndex;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/autocomplete")
+public class AutocompleteController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final TitleIndex titleIndex;
+
+    public AutocompleteController(TitleIndex titleIndex) {
+        this.titleIndex = titleIndex;
+    }
+
+    private Long getCurrentUserId(Authentication auth) {
+        return (Long) auth.getPrincipal();
+    }
+
+    @GetMapping
+    public ResponseEntity<?> autocomplete(@RequestParam(defaultValue = "") String q,
+                                          @RequestParam(defaultValue = "all") String type,
+                                          @RequestParam(defaultValue = "10") int limit,
+                                          Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "limit must be between 1 and " + MAX_LIMIT));
+        }
+
+        boolean notes = type.equals("all") || type.equals("notes");
+        boolean folders = type.equals("all") || type.equals("folders");
+
+        if (!notes && !folders) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "type must be one of all, notes, folders"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        if (notes) {
+            response.put("notes", titleIndex.completeNotes(userId, q, limit));
+        }
+        if (folders) {
+            response.put("folders", titleIndex.completeFolders(userId, q, limit));
+        }
+
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,35 @@
+package com.lcorp.notes.controller;
+
+import com.lcorp.notes.service.ChangeStream;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventsController {
+
+    private final ChangeStream changeStream;
+
+    public EventsController(ChangeStream changeStream) {
+        this.changeStream = changeStream;
+    }
+
+    private Long getCurrentUserId(Authentication auth) {
+        return (Long) auth.getPrincipal();
+    }
+
+    // Server-sent events for the current user's note and folder changes (see
+    // ChangeStream). The transaction only covers the replay after a reconnect.
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Transactional(readOnly = true)
+    public SseEmitter events(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                             Authentication auth) {
+        return changeStream.subscribe(getCurrentUserId(auth), lastEventId);
+    }
+}
@@ -0,0 +1,81 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.service.NoteExporter;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private final NoteExporter noteExporter;
+    private final ObjectMapper objectMapper;
+    private final Shards shards;
+
+    public ExportController(NoteExporter noteExporter, ObjectMapper objectMapper, Shards shards) {
+        this.noteExporter = noteExporter;
+        this.objectMapper = objectMapper;
+        this.shards = shards;
+    }
+
+    private Long getCurrentUserId(Authentication auth) {
+        return (Long) auth.getPrincipal();
+    }
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format, Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        StreamingResponseBody body;
+        MediaType mediaType;
+        String filename;
+
+        switch (format) {
+            case "ndjson" -> {
+                // Written on an async thread, outside the request's shard
+                body = out -> {
+                    try (ShardContext.Scope scope = shards.enter(userId)) {
+                        noteExporter.writeNdjson(userId, out);
+                    }
+                };
+                mediaType = MediaType.parseMediaType("application/x-ndjson");
+                filename = "notes-export.ndjson";
+            }
+            case "zip" -> {
+                body = out -> {
+                    try (ShardContext.Scope scope = shards.enter(userId)) {
+                        noteExporter.writeZip(userId, out);
+                    }
+                };
+                mediaType = MediaType.parseMediaType("application/zip");
+                filename = "notes-export.zip";
+            }
+            default -> {
+                // Streaming handler methods cannot return a plain body
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(out -> objectMapper.writeValue(out, Map.of("error", "format must be ndjson or zip")));
+            }
+        }
+
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
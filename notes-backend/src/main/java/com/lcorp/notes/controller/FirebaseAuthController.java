@@ -1,9 +1,9 @@
 package com.lcorp.notes.controller;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseToken;
 import com.lcorp.notes.model.User;
-import com.lcorp.notes.repository.UserRepository;
+import com.lcorp.notes.security.FirebaseIdentity;
+import com.lcorp.notes.security.FirebaseTokenVerifier;
+import com.lcorp.notes.service.UserDirectory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,10 +15,13 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 public class FirebaseAuthController {
 
-    private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
+    private final FirebaseTokenVerifier firebaseTokenVerifier;
 
-    public FirebaseAuthController(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public FirebaseAuthController(UserDirectory userDirectory,
+                                  FirebaseTokenVerifier firebaseTokenVerifier) {
+        this.userDirectory = userDirectory;
+        this.firebaseTokenVerifier = firebaseTokenVerifier;
     }
 
     @PostMapping("/firebase-login")
@@ -32,19 +35,16 @@ public class FirebaseAuthController {
             }
 
             // Verify Firebase token
-            FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-            String email = decodedToken.getEmail();
-            String name = decodedToken.getName() != null ? decodedToken.getName() : email;
+            FirebaseIdentity identity = firebaseTokenVerifier.verify(idToken);
+            String email = identity.getEmail();
+            if (email == null || !identity.isEmailVerified()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("error", "Firebase account has no verified email"));
+            }
+            String name = identity.getName() != null ? identity.getName() : email;
 
             // Find or create user
-            User user = userRepository.findByEmail(email)
-                    .orElseGet(() -> {
-                        User newUser = new User();
-                        newUser.setEmail(email);
-                        newUser.setName(name);
-                        newUser.setPasswordHash(""); // No password for Firebase users
-                        return userRepository.save(newUser);
-                    });
+            User user = userDirectory.findOrCreate(email, name);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Firebase authentication successful");
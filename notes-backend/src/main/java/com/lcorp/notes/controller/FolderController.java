@@ -2,29 +2,50 @@ package com.lcorp.notes.controller;
 
 import com.lcorp.notes.dto.FolderRequest;
 import com.lcorp.notes.dto.FolderResponse;
+import com.lcorp.notes.event.FolderChangedEvent;
 import com.lcorp.notes.model.Folder;
-import com.lcorp.notes.model.User;
 import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
 import com.lcorp.notes.repository.UserRepository;
+import com.lcorp.notes.service.DataVersions;
+import com.lcorp.notes.service.DatabaseWriter;
+import com.lcorp.notes.service.UserDataCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/folders")
 public class FolderController {
 
     private final FolderRepository folderRepository;
+    private final NoteRepository noteRepository;
     private final UserRepository userRepository;
-
-    public FolderController(FolderRepository folderRepository, UserRepository userRepository) {
+    private final ApplicationEventPublisher eventPublisher;
+    private final DatabaseWriter databaseWriter;
+    private final DataVersions dataVersions;
+    private final UserDataCache userDataCache;
+
+    public FolderController(FolderRepository folderRepository,
+                            NoteRepository noteRepository,
+                            UserRepository userRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            DatabaseWriter databaseWriter,
+                            DataVersions dataVersions,
+                            UserDataCache userDataCache) {
         this.folderRepository = folderRepository;
+        this.noteRepository = noteRepository;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.databaseWriter = databaseWriter;
+        this.dataVersions = dataVersions;
+        this.userDataCache = userDataCache;
     }
 
     private Long getCurrentUserId(Authentication auth) {
@@ -32,15 +53,15 @@ public class FolderController {
     }
 
     @GetMapping
-    public ResponseEntity<List<FolderResponse>> listFolders(Authentication auth) {
+    public ResponseEntity<List<FolderResponse>> listFolders(Authentication auth, WebRequest webRequest) {
         Long userId = getCurrentUserId(auth);
-        List<Folder> folders = folderRepository.findByOwnerIdOrderByCreatedAtDesc(userId);
+        String etag = dataVersions.etag(userId);
 
-        List<FolderResponse> response = folders.stream()
-                .map(f -> new FolderResponse(f.getId(), f.getName(), f.getCreatedAt()))
-                .collect(Collectors.toList());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag).body(userDataCache.folders(userId));
     }
 
     @PostMapping
@@ -53,16 +74,23 @@ public class FolderController {
                     .body(Map.of("error", "Name is required"));
         }
 
-        User user = userRepository.findById(userId).orElseThrow();
+        // Only has to exist, which the cached profile tells without a query
+        if (userDataCache.profile(userId) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Not found"));
+        }
 
-        Folder folder = new Folder();
-        folder.setName(name);
-        folder.setOwner(user);
+        return databaseWriter.write(() -> {
+            Folder folder = new Folder();
+            folder.setName(name);
+            folder.setOwner(userRepository.getReferenceById(userId));
 
-        folder = folderRepository.save(folder);
+            folder = folderRepository.save(folder);
+            eventPublisher.publishEvent(new FolderChangedEvent(FolderChangedEvent.Type.CREATED, folder));
 
-        FolderResponse response = new FolderResponse(folder.getId(), folder.getName(), folder.getCreatedAt());
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            FolderResponse response = new FolderResponse(folder.getId(), folder.getName(), folder.getCreatedAt());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        });
     }
 
     @PutMapping("/{folderId}")
@@ -77,32 +105,40 @@ public class FolderController {
                     .body(Map.of("error", "Name is required"));
         }
 
-        Folder folder = folderRepository.findByIdAndOwnerId(folderId, userId).orElse(null);
+        return databaseWriter.write(() -> {
+            Folder folder = folderRepository.findByIdAndOwnerId(folderId, userId).orElse(null);
 
-        if (folder == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Not found"));
-        }
+            if (folder == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
 
-        folder.setName(name);
-        folderRepository.save(folder);
+            folder.setName(name);
+            folder = folderRepository.save(folder);
+            eventPublisher.publishEvent(new FolderChangedEvent(FolderChangedEvent.Type.RENAMED, folder));
 
-        return ResponseEntity.ok(Map.of("message", "Updated"));
+            return ResponseEntity.ok(Map.of("message", "Updated"));
+        });
     }
 
     @DeleteMapping("/{folderId}")
     public ResponseEntity<?> deleteFolder(@PathVariable Long folderId, Authentication auth) {
         Long userId = getCurrentUserId(auth);
 
-        Folder folder = folderRepository.findByIdAndOwnerId(folderId, userId).orElse(null);
+        return databaseWriter.write(() -> {
+            Folder folder = folderRepository.findByIdAndOwnerId(folderId, userId).orElse(null);
 
-        if (folder == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Not found"));
-        }
+            if (folder == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
 
-        folderRepository.delete(folder);
+            // Published first so listeners can still see the notes that go with it
+            eventPublisher.publishEvent(new FolderChangedEvent(FolderChangedEvent.Type.DELETED, folder));
+            noteRepository.deleteByFolderId(folderId);
+            folderRepository.deleteFolderById(folderId);
 
-        return ResponseEntity.ok(Map.of("message", "Deleted"));
+            return ResponseEntity.ok(Map.of("message", "Deleted"));
+        });
     }
 }
\ No newline at end of file
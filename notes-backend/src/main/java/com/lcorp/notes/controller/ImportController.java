@@ -0,0 +1,133 @@
+package com.lcorp.notes.controller;
+
+import com.lcorp.notes.dto.ImportJobResponse;
+import com.lcorp.notes.model.ImportJob;
+import com.lcorp.notes.repository.ImportJobRepository;
+import com.lcorp.notes.service.NoteImporter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    private final NoteImporter noteImporter;
+    private final ImportJobRepository importJobRepository;
+
+    public ImportController(NoteImporter noteImporter, ImportJobRepository importJobRepository) {
+        this.noteImporter = noteImporter;
+        this.importJobRepository = importJobRepository;
+    }
+
+    private Long getCurrentUserId(Authentication auth) {
+        return (Long) auth.getPrincipal();
+    }
+
+    private ImportJobResponse toResponse(ImportJob job) {
+        return new ImportJobResponse(
+                job.getId(),
+                job.getFormat(),
+                job.getStatus().name(),
+                job.getPosition(),
+                job.getFoldersCreated(),
+                job.getNotesCreated(),
+                job.getError(),
+                job.getCreatedAt(),
+                job.getUpdatedAt()
+        );
+    }
+
+    // The body is the raw file. Pass jobId to resume an interrupted import:
+    // send the same file again and records already imported are skipped.
+    @PostMapping
+    public ResponseEntity<?> importNotes(@RequestParam(defaultValue = "ndjson") String format,
+                                         @RequestParam(required = false) Long jobId,
+                                         @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                         InputStream body,
+                                         Authentication auth) throws IOException {
+        Long userId = getCurrentUserId(auth);
+
+        // The container would already have consumed a form body as parameters
+        if (contentType != null && (contentType.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                || contentType.startsWith("multipart/"))) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(Map.of("error", "Send the file itself as the request body"));
+        }
+
+        if (!NoteImporter.FORMATS.contains(format)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "format must be ndjson or zip"));
+        }
+
+        ImportJob job;
+        if (jobId != null) {
+            job = importJobRepository.findByIdAndOwnerId(jobId, userId).orElse(null);
+
+            if (job == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
+
+            if (job.getStatus() == ImportJob.Status.COMPLETED) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Import already completed"));
+            }
+
+            if (!job.getFormat().equals(format)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", "A resumed import must use its original format"));
+            }
+        } else {
+            job = noteImporter.createJob(userId, format);
+        }
+
+        try {
+            job = noteImporter.run(job, body);
+        } catch (NoteImporter.ImportRunningException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (NoteImporter.InvalidImportException e) {
+            job = importJobRepository.findById(job.getId()).orElse(job);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage(), "job", toResponse(job)));
+        }
+
+        return ResponseEntity.ok(toResponse(job));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ImportJobResponse>> listImports(Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        List<ImportJobResponse> response = importJobRepository.findByOwnerIdOrderByCreatedAtDesc(userId).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(response);
+    }
+
+    // Poll while an upload is running to follow its progress
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getImport(@PathVariable Long jobId, Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        ImportJob job = importJobRepository.findByIdAndOwnerId(jobId, userId).orElse(null);
+
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Not found"));
+        }
+
+        return ResponseEntity.ok(toResponse(job));
+    }
+}
@@ -1,66 +1,195 @@
 package com.lcorp.notes.controller;
 
+import com.lcorp.notes.dto.NoteBatchOperation;
+import com.lcorp.notes.dto.NoteBatchRequest;
+import com.lcorp.notes.dto.NoteBatchResult;
+import com.lcorp.notes.dto.NoteCursor;
+import com.lcorp.notes.dto.NotePatchRequest;
+import com.lcorp.notes.dto.NoteTextEdit;
+import com.lcorp.notes.dto.NotePageResponse;
 import com.lcorp.notes.dto.NoteRequest;
 import com.lcorp.notes.dto.NoteResponse;
+import com.lcorp.notes.dto.NoteSearchResult;
+import com.lcorp.notes.dto.NoteSummaryResponse;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.event.NotesBatchedEvent;
 import com.lcorp.notes.model.Folder;
 import com.lcorp.notes.model.Note;
 import com.lcorp.notes.model.User;
 import com.lcorp.notes.repository.FolderRepository;
 import com.lcorp.notes.repository.NoteRepository;
 import com.lcorp.notes.repository.UserRepository;
+import com.lcorp.notes.service.DataVersions;
+import com.lcorp.notes.service.DatabaseWriter;
+import com.lcorp.notes.service.NoteSearchIndex;
+import com.lcorp.notes.service.NoteWriteBuffer;
+import com.lcorp.notes.service.UserDataCache;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/notes")
 public class NoteController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final NoteRepository noteRepository;
     private final UserRepository userRepository;
     private final FolderRepository folderRepository;
+    private final NoteSearchIndex noteSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DatabaseWriter databaseWriter;
+    private final DataVersions dataVersions;
+    private final UserDataCache userDataCache;
+    private final NoteWriteBuffer noteWriteBuffer;
 
     public NoteController(NoteRepository noteRepository,
                           UserRepository userRepository,
-                          FolderRepository folderRepository) {
+                          FolderRepository folderRepository,
+                          NoteSearchIndex noteSearchIndex,
+                          ApplicationEventPublisher eventPublisher,
+                          DatabaseWriter databaseWriter,
+                          DataVersions dataVersions,
+                          UserDataCache userDataCache,
+                          NoteWriteBuffer noteWriteBuffer) {
         this.noteRepository = noteRepository;
         this.userRepository = userRepository;
         this.folderRepository = folderRepository;
+        this.noteSearchIndex = noteSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.databaseWriter = databaseWriter;
+        this.dataVersions = dataVersions;
+        this.userDataCache = userDataCache;
+        this.noteWriteBuffer = noteWriteBuffer;
     }
 
     private Long getCurrentUserId(Authentication auth) {
         return (Long) auth.getPrincipal();
     }
 
+    private NoteResponse toResponse(Note note) {
+        return NoteResponse.of(note);
+    }
+
     @GetMapping
-    public ResponseEntity<List<NoteResponse>> listNotes(@RequestParam(required = false) Long folderId,
-                                                        Authentication auth) {
+    public ResponseEntity<?> listNotes(@RequestParam(required = false) Long folderId,
+                                       @RequestParam(defaultValue = "false") boolean favorite,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(required = false) String cursor,
+                                       Authentication auth,
+                                       WebRequest webRequest) {
         Long userId = getCurrentUserId(auth);
+        String etag = dataVersions.etag(userId);
+
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        if (limit != null || cursor != null) {
+            return listNoteSummaries(userId, folderId, favorite, limit, cursor);
+        }
 
         List<Note> notes;
         if (folderId != null) {
             notes = noteRepository.findByOwnerIdAndFolderIdOrderByUpdatedAtDesc(userId, folderId);
+            if (favorite) {
+                notes = notes.stream().filter(Note::getIsFavorite).toList();
+            }
+        } else if (favorite) {
+            notes = noteRepository.findByOwnerIdAndIsFavoriteTrueOrderByUpdatedAtDesc(userId);
         } else {
             notes = noteRepository.findByOwnerIdOrderByUpdatedAtDesc(userId);
         }
 
         List<NoteResponse> response = notes.stream()
-                .map(n -> new NoteResponse(
-                        n.getId(),
-                        n.getTitle(),
-                        n.getContent(),
-                        n.getIsFavorite(),
-                        n.getFolder() != null ? n.getFolder().getId() : null,
-                        n.getUpdatedAt()
-                ))
+                .map(this::toResponse)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag).body(response);
+    }
+
+    private ResponseEntity<?> listNoteSummaries(Long userId, Long folderId, boolean favorite,
+                                                Integer limit, String cursor) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+
+        NoteCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            after = NoteCursor.decode(cursor);
+            if (after == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", "Invalid cursor"));
+            }
+        }
+
+        // One extra row tells us whether another page exists without a count query
+        List<NoteSummaryResponse> items = noteRepository.findSummaries(userId, folderId, favorite, after, pageSize + 1);
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = NoteCursor.of(items.get(pageSize - 1)).encode();
+        }
+
+        return ResponseEntity.ok(new NotePageResponse(items, nextCursor));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchNotes(@RequestParam String q,
+                                         @RequestParam(required = false) Long folderId,
+                                         @RequestParam(required = false) Integer limit,
+                                         Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+        int pageSize = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+
+        if (q.trim().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "q is required"));
+        }
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+
+        List<NoteSearchResult> results = noteSearchIndex.search(userId, folderId, q, pageSize);
+
+        return ResponseEntity.ok(results);
+    }
+
+    @GetMapping("/{noteId}")
+    public ResponseEntity<?> getNote(@PathVariable Long noteId, Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
+
+        if (note == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Not found"));
+        }
+
+        return ResponseEntity.ok(toResponse(note));
     }
 
     @PostMapping
@@ -72,31 +201,31 @@ public class NoteController {
         String content = request.getContent() != null ? request.getContent() : "";
         Long folderId = request.getFolderId();
 
-        User user = userRepository.findById(userId).orElseThrow();
+        // Only has to exist, which the cached profile tells without a query
+        if (userDataCache.profile(userId) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Not found"));
+        }
 
-        Note note = new Note();
-        note.setTitle(title);
-        note.setContent(content);
-        note.setOwner(user);
-        note.setIsFavorite(false);
+        return databaseWriter.write(() -> {
+            Note note = new Note();
+            note.setTitle(title);
+            note.setContent(content);
+            note.setOwner(userRepository.getReferenceById(userId));
+            note.setIsFavorite(false);
 
-        if (folderId != null) {
-            Folder folder = folderRepository.findById(folderId).orElse(null);
-            note.setFolder(folder);
-        }
+            if (folderId != null) {
+                Folder folder = folderRepository.findById(folderId).orElse(null);
+                note.setFolder(folder);
+            }
 
-        note = noteRepository.save(note);
+            note = noteRepository.save(note);
+            eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.CREATED, note));
 
-        NoteResponse response = new NoteResponse(
-                note.getId(),
-                note.getTitle(),
-                note.getContent(),
-                note.getIsFavorite(),
-                note.getFolder() != null ? note.getFolder().getId() : null,
-                note.getUpdatedAt()
-        );
+            NoteResponse response = toResponse(note);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        });
     }
 
     @PutMapping("/{noteId}")
@@ -105,75 +234,310 @@ public class NoteController {
                                         Authentication auth) {
         Long userId = getCurrentUserId(auth);
 
-        Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
-
-        if (note == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Not found"));
+        // Autosaves are merged in memory and written later, when enabled
+        if (noteWriteBuffer.accepts(request.isFolderIdPresent())) {
+            NoteResponse buffered = noteWriteBuffer.update(userId, noteId, request.getTitle(), request.getContent());
+            if (buffered == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
+            return ResponseEntity.ok(buffered);
         }
+        noteWriteBuffer.flush(userId);
 
-        if (request.getTitle() != null) {
-            String title = request.getTitle().trim();
-            note.setTitle(title.isEmpty() ? note.getTitle() : title);
-        }
+        return databaseWriter.write(() -> {
+            Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
 
-        if (request.getContent() != null) {
-            note.setContent(request.getContent());
-        }
+            if (note == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
 
-        if (request.getFolderId() != null || request.isFolderIdPresent()) {
-            if (request.getFolderId() == null) {
-                note.setFolder(null);
-            } else {
-                Folder folder = folderRepository.findById(request.getFolderId()).orElse(null);
-                note.setFolder(folder);
+            if (request.getTitle() != null) {
+                String title = request.getTitle().trim();
+                note.setTitle(title.isEmpty() ? note.getTitle() : title);
+            }
+
+            if (request.getContent() != null) {
+                note.setContent(request.getContent());
+            }
+
+            if (request.getFolderId() != null || request.isFolderIdPresent()) {
+                if (request.getFolderId() == null) {
+                    note.setFolder(null);
+                } else {
+                    Folder folder = folderRepository.findById(request.getFolderId()).orElse(null);
+                    note.setFolder(folder);
+                }
             }
+
+            note = noteRepository.save(note);
+            eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.UPDATED, note));
+
+            NoteResponse response = toResponse(note);
+
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    // Autosave without resending the whole note: applies text edits to the
+    // stored content, as long as nobody changed the note since baseVersion
+    @PatchMapping("/{noteId}")
+    public ResponseEntity<?> patchNote(@PathVariable Long noteId,
+                                       @RequestBody NotePatchRequest request,
+                                       Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        if (request.getBaseVersion() == null || request.getEdits() == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "baseVersion and edits are required"));
         }
 
-        note = noteRepository.save(note);
+        return databaseWriter.write(() -> {
+            Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
 
-        NoteResponse response = new NoteResponse(
-                note.getId(),
-                note.getTitle(),
-                note.getContent(),
-                note.getIsFavorite(),
-                note.getFolder() != null ? note.getFolder().getId() : null,
-                note.getUpdatedAt()
-        );
+            if (note == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
+
+            if (!request.getBaseVersion().equals(note.getChangeVersion())) {
+                Map<String, Object> conflict = new HashMap<>();
+                conflict.put("error", "Note has changed since baseVersion");
+                conflict.put("version", note.getChangeVersion());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(conflict);
+            }
 
-        return ResponseEntity.ok(response);
+            String content = applyEdits(note.getContent(), request.getEdits());
+            if (content == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", "Edit out of range"));
+            }
+
+            note.setContent(content);
+            note = noteRepository.save(note);
+            eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.UPDATED, note));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("id", note.getId());
+            response.put("version", note.getChangeVersion());
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    // Returns null if an edit does not fit the text it applies to
+    private static String applyEdits(String content, List<NoteTextEdit> edits) {
+        StringBuilder text = new StringBuilder(content);
+
+        for (NoteTextEdit edit : edits) {
+            int offset = edit.getOffset() != null ? edit.getOffset() : -1;
+            int delete = edit.getDelete() != null ? edit.getDelete() : 0;
+
+            if (offset < 0 || delete < 0 || offset > text.length() || delete > text.length() - offset) {
+                return null;
+            }
+
+            text.replace(offset, offset + delete, edit.getInsert() != null ? edit.getInsert() : "");
+        }
+
+        return text.toString();
     }
 
     @DeleteMapping("/{noteId}")
     public ResponseEntity<?> deleteNote(@PathVariable Long noteId, Authentication auth) {
         Long userId = getCurrentUserId(auth);
 
-        Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
+        return databaseWriter.write(() -> {
+            Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
 
-        if (note == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Not found"));
-        }
+            if (note == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
 
-        noteRepository.delete(note);
+            noteRepository.delete(note);
+            eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.DELETED, note));
 
-        return ResponseEntity.ok(Map.of("message", "Deleted"));
+            return ResponseEntity.ok(Map.of("message", "Deleted"));
+        });
     }
 
     @PostMapping("/{noteId}/favorite")
     public ResponseEntity<?> toggleFavorite(@PathVariable Long noteId, Authentication auth) {
         Long userId = getCurrentUserId(auth);
 
-        Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
+        return databaseWriter.write(() -> {
+            Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
+
+            if (note == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
+
+            note.setIsFavorite(!note.getIsFavorite());
+            note = noteRepository.save(note);
+            eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.FAVORITED, note));
+
+            return ResponseEntity.ok(Map.of("id", note.getId(), "is_favorite", note.getIsFavorite()));
+        });
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestBody NoteBatchRequest request, Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+        List<NoteBatchOperation> operations = request.getOperations();
+
+        if (operations == null || operations.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "operations is required"));
+        }
+
+        if (operations.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "At most " + MAX_BATCH_SIZE + " operations per batch"));
+        }
+
+        Set<Long> noteIds = new HashSet<>();
+        Set<Long> folderIds = new HashSet<>();
+        for (NoteBatchOperation operation : operations) {
+            if (operation.getId() != null) {
+                noteIds.add(operation.getId());
+            }
+            if (operation.getFolderId() != null) {
+                folderIds.add(operation.getFolderId());
+            }
+        }
 
+        return databaseWriter.write(() -> {
+            // Everything the batch touches is loaded up front in two queries, and
+            // all changes are flushed together at the end so Hibernate can send
+            // them as JDBC batches instead of one statement per operation.
+            Map<Long, Note> notes = noteRepository.findByOwnerIdAndIdIn(userId, noteIds).stream()
+                    .collect(Collectors.toMap(Note::getId, Function.identity()));
+            Map<Long, Folder> folders = folderRepository.findByOwnerIdAndIdIn(userId, folderIds).stream()
+                    .collect(Collectors.toMap(Folder::getId, Function.identity()));
+            User owner = userRepository.getReferenceById(userId);
+
+            List<NoteBatchResult> results = new ArrayList<>(operations.size());
+            List<Note> changed = new ArrayList<>(operations.size());
+            Map<Long, Note> reindexed = new LinkedHashMap<>();
+            List<Long> deleted = new ArrayList<>();
+            for (int i = 0; i < operations.size(); i++) {
+                NoteBatchResult result = new NoteBatchResult(i, HttpStatus.OK.value(), null, null, null);
+                changed.add(applyBatchOperation(operations.get(i), result, owner, notes, folders, reindexed, deleted));
+                results.add(result);
+            }
+
+            noteRepository.flush();
+            // Search index, revisions and tombstones for every note at once
+            eventPublisher.publishEvent(new NotesBatchedEvent(userId, new ArrayList<>(reindexed.values()), deleted));
+
+            for (int i = 0; i < results.size(); i++) {
+                Note note = changed.get(i);
+                if (note != null) {
+                    results.get(i).setNote(toResponse(note));
+                }
+            }
+
+            return ResponseEntity.ok(results);
+        });
+    }
+
+    // Applies one operation to the preloaded notes and fills in its result.
+    // Returns the note to report back, or null when there is nothing to show.
+    // Notes whose title or content may have changed go into reindexed, removed
+    // ones into deleted.
+    private Note applyBatchOperation(NoteBatchOperation operation,
+                                     NoteBatchResult result,
+                                     User owner,
+                                     Map<Long, Note> notes,
+                                     Map<Long, Folder> folders,
+                                     Map<Long, Note> reindexed,
+                                     List<Long> deleted) {
+        String op = operation.getOp() != null ? operation.getOp() : "";
+        result.setId(operation.getId());
+
+        Folder folder = null;
+        if (operation.getFolderId() != null) {
+            folder = folders.get(operation.getFolderId());
+            if (folder == null) {
+                return fail(result, HttpStatus.NOT_FOUND, "Folder not found");
+            }
+        }
+
+        if (op.equals("create")) {
+            String title = operation.getTitle() != null && !operation.getTitle().trim().isEmpty()
+                    ? operation.getTitle().trim()
+                    : "Untitled";
+
+            Note note = new Note();
+            note.setTitle(title);
+            note.setContent(operation.getContent() != null ? operation.getContent() : "");
+            note.setOwner(owner);
+            note.setIsFavorite(false);
+            note.setFolder(folder);
+
+            note = noteRepository.save(note);
+            notes.put(note.getId(), note);
+            reindexed.put(note.getId(), note);
+            eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.CREATED, note, true));
+
+            result.setStatus(HttpStatus.CREATED.value());
+            result.setId(note.getId());
+            return note;
+        }
+
+        if (!List.of("update", "move", "delete", "favorite").contains(op)) {
+            return fail(result, HttpStatus.BAD_REQUEST, "Unknown op: " + op);
+        }
+
+        Note note = operation.getId() != null ? notes.get(operation.getId()) : null;
         if (note == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Not found"));
+            return fail(result, HttpStatus.NOT_FOUND, "Not found");
         }
 
-        note.setIsFavorite(!note.getIsFavorite());
-        note = noteRepository.save(note);
+        switch (op) {
+            case "update" -> {
+                if (operation.getTitle() != null) {
+                    String title = operation.getTitle().trim();
+                    note.setTitle(title.isEmpty() ? note.getTitle() : title);
+                }
+                if (operation.getContent() != null) {
+                    note.setContent(operation.getContent());
+                }
+                if (operation.isFolderIdPresent()) {
+                    note.setFolder(folder);
+                }
+                reindexed.put(note.getId(), note);
+                eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.UPDATED, note, true));
+            }
+            case "move" -> {
+                note.setFolder(folder);
+                reindexed.put(note.getId(), note);
+                eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.UPDATED, note, true));
+            }
+            case "favorite" -> {
+                note.setIsFavorite(operation.getIsFavorite() != null
+                        ? operation.getIsFavorite()
+                        : !note.getIsFavorite());
+                eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.FAVORITED, note, true));
+            }
+            default -> {
+                noteRepository.delete(note);
+                notes.remove(note.getId());
+                reindexed.remove(note.getId());
+                deleted.add(note.getId());
+                eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.DELETED, note, true));
+                return null;
+            }
+        }
+
+        return note;
+    }
 
-        return ResponseEntity.ok(Map.of("id", note.getId(), "is_favorite", note.getIsFavorite()));
+    private static Note fail(NoteBatchResult result, HttpStatus status, String error) {
+        result.setStatus(status.value());
+        result.setError(error);
+        return null;
     }
-}
\ No newline at end of file
+}
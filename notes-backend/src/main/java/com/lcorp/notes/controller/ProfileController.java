@@ -2,13 +2,24 @@ package com.lcorp.notes.controller;
 
 import com.lcorp.notes.dto.ChangePasswordRequest;
 import com.lcorp.notes.dto.UpdateProfileRequest;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.ProfileChangedEvent;
 import com.lcorp.notes.model.User;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
 import com.lcorp.notes.repository.UserRepository;
+import com.lcorp.notes.security.PasswordHashingPool;
+import com.lcorp.notes.security.PasswordHashingPool.HashingRejectedException;
+import com.lcorp.notes.service.DataVersions;
+import com.lcorp.notes.service.DatabaseWriter;
+import com.lcorp.notes.service.UserDataCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -18,11 +29,30 @@ import java.util.Map;
 public class ProfileController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-
-    public ProfileController(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    private final NoteRepository noteRepository;
+    private final FolderRepository folderRepository;
+    private final PasswordHashingPool passwordHashing;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DatabaseWriter databaseWriter;
+    private final DataVersions dataVersions;
+    private final UserDataCache userDataCache;
+
+    public ProfileController(UserRepository userRepository,
+                             NoteRepository noteRepository,
+                             FolderRepository folderRepository,
+                             PasswordHashingPool passwordHashing,
+                             ApplicationEventPublisher eventPublisher,
+                             DatabaseWriter databaseWriter,
+                             DataVersions dataVersions,
+                             UserDataCache userDataCache) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.noteRepository = noteRepository;
+        this.folderRepository = folderRepository;
+        this.passwordHashing = passwordHashing;
+        this.eventPublisher = eventPublisher;
+        this.databaseWriter = databaseWriter;
+        this.dataVersions = dataVersions;
+        this.userDataCache = userDataCache;
     }
 
     private Long getCurrentUserId(Authentication auth) {
@@ -30,42 +60,52 @@ public class ProfileController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getProfile(Authentication auth) {
+    public ResponseEntity<?> getProfile(Authentication auth, WebRequest webRequest) {
         Long userId = getCurrentUserId(auth);
-        User user = userRepository.findById(userId).orElse(null);
+        String etag = dataVersions.etag(userId);
+
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        UserDataCache.Profile profile = userDataCache.profile(userId);
 
-        if (user == null) {
+        if (profile == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Not found"));
         }
 
         Map<String, Object> response = new HashMap<>();
-        response.put("id", user.getId());
-        response.put("email", user.getEmail());
-        response.put("name", user.getName());
+        response.put("id", profile.id());
+        response.put("email", profile.email());
+        response.put("name", profile.name());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag).body(response);
     }
 
     @PutMapping
     public ResponseEntity<?> updateProfile(@RequestBody UpdateProfileRequest request,
                                            Authentication auth) {
         Long userId = getCurrentUserId(auth);
-        User user = userRepository.findById(userId).orElse(null);
 
-        if (user == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Not found"));
-        }
+        return databaseWriter.write(() -> {
+            User user = userRepository.findById(userId).orElse(null);
 
-        if (request.getName() != null) {
-            String name = request.getName().trim();
-            user.setName(name.isEmpty() ? user.getName() : name);
-        }
+            if (user == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
+
+            if (request.getName() != null) {
+                String name = request.getName().trim();
+                user.setName(name.isEmpty() ? user.getName() : name);
+            }
 
-        userRepository.save(user);
+            userRepository.save(user);
+            eventPublisher.publishEvent(new ProfileChangedEvent(userId));
 
-        return ResponseEntity.ok(Map.of("message", "Name changed success!"));
+            return ResponseEntity.ok(Map.of("message", "Name changed success!"));
+        });
     }
 
     @PostMapping("/change-password")
@@ -82,29 +122,56 @@ public class ProfileController {
 
         User user = userRepository.findById(userId).orElse(null);
 
-        if (user == null || !passwordEncoder.matches(currentPassword, user.getPasswordHash())) {
+        if (user == null || !passwordHashing.matches(currentPassword, user.getPasswordHash())) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid credentials"));
         }
 
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        // Hash before taking a write slot; BCrypt is deliberately slow
+        String passwordHash = passwordHashing.encode(newPassword);
 
-        return ResponseEntity.ok(Map.of("message", "Password change GREAT success!"));
+        return databaseWriter.write(() -> {
+            User current = userRepository.findById(userId).orElse(null);
+
+            if (current == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
+
+            current.setPasswordHash(passwordHash);
+            userRepository.save(current);
+            eventPublisher.publishEvent(new ProfileChangedEvent(userId));
+
+            return ResponseEntity.ok(Map.of("message", "Password change GREAT success!"));
+        });
     }
 
     @DeleteMapping
     public ResponseEntity<?> deleteAccount(Authentication auth) {
         Long userId = getCurrentUserId(auth);
-        User user = userRepository.findById(userId).orElse(null);
 
-        if (user == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Not found"));
-        }
+        return databaseWriter.write(() -> {
+            User user = userRepository.findById(userId).orElse(null);
+
+            if (user == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
 
-        userRepository.delete(user);
+            noteRepository.deleteByOwnerId(userId);
+            folderRepository.deleteByOwnerId(userId);
+            userRepository.delete(user);
+            eventPublisher.publishEvent(new AccountDeletedEvent(userId, user.getEmail()));
+
+            return ResponseEntity.ok(Map.of("message", "Account deleted :("));
+        });
+    }
 
-        return ResponseEntity.ok(Map.of("message", "Account deleted :("));
+    // Password hashing is at capacity (see PasswordHashingPool)
+    @ExceptionHandler(HashingRejectedException.class)
+    public ResponseEntity<?> hashingRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Too many requests, try again shortly"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.lcorp.notes.controller;
+
+import com.lcorp.notes.dto.NoteResponse;
+import com.lcorp.notes.dto.NoteRevisionResponse;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.repository.NoteRepository;
+import com.lcorp.notes.service.DatabaseWriter;
+import com.lcorp.notes.service.NoteRevisions;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Earlier versions of a note (see NoteRevisions), newest first
+@RestController
+@RequestMapping("/api/notes/{noteId}/revisions")
+public class RevisionController {
+
+    private final NoteRepository noteRepository;
+    private final NoteRevisions noteRevisions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DatabaseWriter databaseWriter;
+
+    public RevisionController(NoteRepository noteRepository,
+                              NoteRevisions noteRevisions,
+                              ApplicationEventPublisher eventPublisher,
+                              DatabaseWriter databaseWriter) {
+        this.noteRepository = noteRepository;
+        this.noteRevisions = noteRevisions;
+        this.eventPublisher = eventPublisher;
+        this.databaseWriter = databaseWriter;
+    }
+
+    private Long getCurrentUserId(Authentication auth) {
+        return (Long) auth.getPrincipal();
+    }
+
+    @GetMapping
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> listRevisions(@PathVariable Long noteId, Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        if (noteRepository.findByIdAndOwnerId(noteId, userId).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Not found"));
+        }
+
+        List<NoteRevisionResponse> response = noteRevisions.list(noteId).stream()
+                .map(revision -> NoteRevisionResponse.of(revision, null))
+                .toList();
+
+        return ResponseEntity.ok(response);
+    }
+
+    // Rebuilt from the note's current content, which the transaction keeps
+    // consistent with the revisions read after it
+    @GetMapping("/{revision}")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getRevision(@PathVariable Long noteId,
+                                         @PathVariable int revision,
+                                         Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
+        NoteRevisions.Version version = note != null ? noteRevisions.find(note, revision).orElse(null) : null;
+
+        if (version == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Not found"));
+        }
+
+        return ResponseEntity.ok(NoteRevisionResponse.of(version.revision(), version.content()));
+    }
+
+    // An update like any other, so the state it replaces becomes a revision too
+    @PostMapping("/{revision}/restore")
+    public ResponseEntity<?> restoreRevision(@PathVariable Long noteId,
+                                             @PathVariable int revision,
+                                             Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        return databaseWriter.write(() -> {
+            Note note = noteRepository.findByIdAndOwnerId(noteId, userId).orElse(null);
+            NoteRevisions.Version version = note != null ? noteRevisions.find(note, revision).orElse(null) : null;
+
+            if (version == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not found"));
+            }
+
+            note.setTitle(version.revision().getTitle());
+            note.setContent(version.content());
+            note = noteRepository.save(note);
+            eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.UPDATED, note));
+
+            return ResponseEntity.ok(NoteResponse.of(note));
+        });
+    }
+}
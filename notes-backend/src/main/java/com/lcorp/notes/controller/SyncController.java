@@ -0,0 +1,121 @@
+package com.lcorp.notes.controller;
+
+import com.lcorp.notes.dto.FolderResponse;
+import com.lcorp.notes.dto.NoteResponse;
+import com.lcorp.notes.dto.SyncResponse;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.Tombstone;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import com.lcorp.notes.repository.TombstoneRepository;
+import com.lcorp.notes.repository.UserRepository;
+import com.lcorp.notes.service.ChangeTracker;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private final NoteRepository noteRepository;
+    private final FolderRepository folderRepository;
+    private final TombstoneRepository tombstoneRepository;
+    private final UserRepository userRepository;
+    private final ChangeTracker changeTracker;
+
+    public SyncController(NoteRepository noteRepository,
+                          FolderRepository folderRepository,
+                          TombstoneRepository tombstoneRepository,
+                          UserRepository userRepository,
+                          ChangeTracker changeTracker) {
+        this.noteRepository = noteRepository;
+        this.folderRepository = folderRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.userRepository = userRepository;
+        this.changeTracker = changeTracker;
+    }
+
+    private Long getCurrentUserId(Authentication auth) {
+        return (Long) auth.getPrincipal();
+    }
+
+    private NoteResponse toResponse(Note note) {
+        return NoteResponse.of(note);
+    }
+
+    private FolderResponse toResponse(Folder folder) {
+        return new FolderResponse(folder.getId(), folder.getName(), folder.getCreatedAt());
+    }
+
+    // Without a cursor this is a full snapshot; with one, only what changed
+    // after it. A cursor from before tombstones the client has not seen were
+    // pruned also gets a full snapshot, as the delta could miss deletes.
+    // Either way the returned cursor is where the next call resumes.
+    @GetMapping("/changes")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> changes(@RequestParam(required = false) String since, Authentication auth) {
+        Long userId = getCurrentUserId(auth);
+
+        Long sinceVersion = null;
+        if (since != null && !since.isEmpty()) {
+            try {
+                sinceVersion = Long.parseLong(since);
+            } catch (NumberFormatException e) {
+                sinceVersion = -1L;
+            }
+            if (sinceVersion < 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", "Invalid cursor"));
+            }
+        }
+
+        // Taken before reading, so anything committed meanwhile is picked up
+        // again next time rather than skipped
+        long upTo = changeTracker.committedVersion();
+
+        if (sinceVersion == null || sinceVersion < userRepository.findPrunedVersionById(userId).orElse(0L)) {
+            List<NoteResponse> notes = noteRepository.findByOwnerIdOrderByUpdatedAtDesc(userId).stream()
+                    .map(this::toResponse)
+                    .collect(Collectors.toList());
+            List<FolderResponse> folders = folderRepository.findByOwnerIdOrderByCreatedAtDesc(userId).stream()
+                    .map(this::toResponse)
+                    .collect(Collectors.toList());
+
+            return ResponseEntity.ok(new SyncResponse(true, notes, folders, List.of(), List.of(), String.valueOf(upTo)));
+        }
+
+        if (sinceVersion >= upTo) {
+            return ResponseEntity.ok(new SyncResponse(false, List.of(), List.of(), List.of(), List.of(), String.valueOf(upTo)));
+        }
+
+        long from = sinceVersion + 1;
+
+        List<NoteResponse> notes = noteRepository.findByOwnerIdAndChangeVersionBetween(userId, from, upTo).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+        List<FolderResponse> folders = folderRepository.findByOwnerIdAndChangeVersionBetween(userId, from, upTo).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+
+        List<Long> deletedNoteIds = new ArrayList<>();
+        List<Long> deletedFolderIds = new ArrayList<>();
+        for (Tombstone tombstone : tombstoneRepository.findByOwnerIdAndChangeVersionBetween(userId, from, upTo)) {
+            if (tombstone.getEntityType() == Tombstone.EntityType.NOTE) {
+                deletedNoteIds.add(tombstone.getEntityId());
+            } else {
+                deletedFolderIds.add(tombstone.getEntityId());
+            }
+        }
+
+        return ResponseEntity.ok(new SyncResponse(false, notes, folders, deletedNoteIds, deletedFolderIds, String.valueOf(upTo)));
+    }
+}
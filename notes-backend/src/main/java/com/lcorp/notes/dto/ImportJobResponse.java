@@ -0,0 +1,32 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class ImportJobResponse {
+    private Long id;
+    private String format;
+    private String status;
+
+    // Records of the upload already imported; a resumed upload skips these
+    private Long processed;
+
+    @JsonProperty("foldersCreated")
+    private Integer foldersCreated;
+
+    @JsonProperty("notesCreated")
+    private Integer notesCreated;
+
+    private String error;
+
+    @JsonProperty("createdAt")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updatedAt")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,30 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+public class NoteBatchOperation {
+
+    // create, update, move, delete or favorite
+    private String op;
+
+    private Long id;
+    private String title;
+    private String content;
+
+    @JsonProperty("folderId")
+    private Long folderId;
+
+    private boolean folderIdPresent;
+
+    // Sets the flag for "favorite"; toggles it when absent
+    @JsonProperty("isFavorite")
+    private Boolean isFavorite;
+
+    @JsonProperty("folderId")
+    public void setFolderId(Long folderId) {
+        this.folderId = folderId;
+        this.folderIdPresent = true;
+    }
+}
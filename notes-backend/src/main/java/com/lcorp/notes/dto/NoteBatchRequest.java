@@ -0,0 +1,10 @@
+package com.lcorp.notes.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NoteBatchRequest {
+    private List<NoteBatchOperation> operations;
+}
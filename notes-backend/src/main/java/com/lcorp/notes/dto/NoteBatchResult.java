@@ -0,0 +1,14 @@
+package com.lcorp.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class NoteBatchResult {
+    private int index;
+    private int status;
+    private Long id;
+    private NoteResponse note;
+    private String error;
+}
@@ -0,0 +1,42 @@
+package com.lcorp.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position of the last note of a page in (updatedAt desc, id desc) order.
+// Clients only ever see the opaque encoded form.
+@Data
+@AllArgsConstructor
+public class NoteCursor {
+    private LocalDateTime updatedAt;
+    private Long id;
+
+    public static NoteCursor of(NoteSummaryResponse note) {
+        return new NoteCursor(note.getUpdatedAt(), note.getId());
+    }
+
+    public String encode() {
+        String raw = updatedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns null for anything that was not produced by encode()
+    public static NoteCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                return null;
+            }
+            return new NoteCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class NotePageResponse {
+    private List<NoteSummaryResponse> items;
+
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NotePatchRequest {
+
+    // The note version the edits were made against
+    @JsonProperty("baseVersion")
+    private Long baseVersion;
+
+    // Applied in order; each offset refers to the text left by the edits before it
+    private List<NoteTextEdit> edits;
+}
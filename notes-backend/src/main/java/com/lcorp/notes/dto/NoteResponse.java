@@ -1,6 +1,7 @@
 package com.lcorp.notes.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.lcorp.notes.model.Note;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -21,4 +22,19 @@ public class NoteResponse {
 
     @JsonProperty("updatedAt")
     private LocalDateTime updatedAt;
+
+    // Base version for PATCH /api/notes/{id}
+    private Long version;
+
+    public static NoteResponse of(Note note) {
+        return new NoteResponse(
+                note.getId(),
+                note.getTitle(),
+                note.getContent(),
+                note.getIsFavorite(),
+                note.getFolder() != null ? note.getFolder().getId() : null,
+                note.getUpdatedAt(),
+                note.getChangeVersion()
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.lcorp.notes.model.NoteRevision;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class NoteRevisionResponse {
+    private Integer revision;
+    private String title;
+
+    // Only when a single revision is asked for
+    private String content;
+
+    @JsonProperty("contentLength")
+    private Integer contentLength;
+
+    // When the note was saved in this state
+    @JsonProperty("savedAt")
+    private LocalDateTime savedAt;
+
+    public static NoteRevisionResponse of(NoteRevision revision, String content) {
+        return new NoteRevisionResponse(
+                revision.getRevision(),
+                revision.getTitle(),
+                content,
+                revision.getContentLength(),
+                revision.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,26 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class NoteSearchResult {
+    private Long id;
+
+    // HTML-escaped, matched terms wrapped in <mark></mark>
+    private String title;
+    private String snippet;
+
+    @JsonProperty("isFavorite")
+    private Boolean isFavorite;
+
+    @JsonProperty("folderId")
+    private Long folderId;
+
+    @JsonProperty("updatedAt")
+    private LocalDateTime updatedAt;
+}
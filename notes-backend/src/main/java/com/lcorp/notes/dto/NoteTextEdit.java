@@ -0,0 +1,12 @@
+package com.lcorp.notes.dto;
+
+import lombok.Data;
+
+// Replaces `delete` characters at `offset` with `insert`. Offsets count UTF-16
+// code units, the same as JavaScript string indices.
+@Data
+public class NoteTextEdit {
+    private Integer offset;
+    private Integer delete;
+    private String insert;
+}
@@ -0,0 +1,29 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SyncResponse {
+
+    // True when no cursor was given, or the cursor is older than pruned
+    // tombstones: the lists are the complete state, not a delta, and the client
+    // drops whatever it has that is not in them
+    @JsonProperty("full")
+    private boolean full;
+
+    private List<NoteResponse> notes;
+    private List<FolderResponse> folders;
+
+    @JsonProperty("deletedNoteIds")
+    private List<Long> deletedNoteIds;
+
+    @JsonProperty("deletedFolderIds")
+    private List<Long> deletedFolderIds;
+
+    private String cursor;
+}
@@ -0,0 +1,11 @@
+package com.lcorp.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TitleMatch {
+    private Long id;
+    private String title;
+}
@@ -0,0 +1,9 @@
+package com.lcorp.notes.event;
+
+import lombok.Data;
+
+@Data
+public class AccountDeletedEvent {
+    private final Long userId;
+    private final String email;
+}
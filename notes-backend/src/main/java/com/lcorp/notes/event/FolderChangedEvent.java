@@ -0,0 +1,19 @@
+package com.lcorp.notes.event;
+
+import com.lcorp.notes.model.Folder;
+import lombok.Data;
+
+// A DELETED folder takes its notes with it; no per-note events are published.
+// DELETED is published before any rows are removed.
+@Data
+public class FolderChangedEvent {
+
+    public enum Type { CREATED, RENAMED, DELETED }
+
+    private final Type type;
+    private final Folder folder;
+
+    public Long getOwnerId() {
+        return folder.getOwner().getId();
+    }
+}
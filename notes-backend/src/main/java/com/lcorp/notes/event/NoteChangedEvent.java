@@ -0,0 +1,32 @@
+package com.lcorp.notes.event;
+
+import com.lcorp.notes.model.Note;
+import lombok.Data;
+
+@Data
+public class NoteChangedEvent {
+
+    public enum Type { CREATED, UPDATED, FAVORITED, DELETED }
+
+    private final Type type;
+
+    // State after the change; for DELETED, the state the note was removed in
+    private final Note note;
+
+    // Part of a batch; see NotesBatchedEvent
+    private final boolean batched;
+
+    public NoteChangedEvent(Type type, Note note) {
+        this(type, note, false);
+    }
+
+    public NoteChangedEvent(Type type, Note note, boolean batched) {
+        this.type = type;
+        this.note = note;
+        this.batched = batched;
+    }
+
+    public Long getOwnerId() {
+        return note.getOwner().getId();
+    }
+}
@@ -0,0 +1,19 @@
+package com.lcorp.notes.event;
+
+import com.lcorp.notes.model.Note;
+import lombok.Data;
+
+import java.util.List;
+
+// Published once by POST /api/notes/batch after all of its changes have been
+// flushed, so listeners that write SQL per note can do it for the whole batch
+// in a few statements. The batch's NoteChangedEvents are marked as batched.
+@Data
+public class NotesBatchedEvent {
+    private final Long ownerId;
+
+    // Created or updated and still there at the end of the batch
+    private final List<Note> changed;
+
+    private final List<Long> deletedIds;
+}
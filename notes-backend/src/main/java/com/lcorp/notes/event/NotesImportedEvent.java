@@ -0,0 +1,16 @@
+package com.lcorp.notes.event;
+
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import lombok.Data;
+
+import java.util.List;
+
+// One committed chunk of an import. Published instead of a CREATED event per
+// note so listeners can handle the whole chunk at once.
+@Data
+public class NotesImportedEvent {
+    private final Long ownerId;
+    private final List<Folder> folders;
+    private final List<Note> notes;
+}
@@ -0,0 +1,8 @@
+package com.lcorp.notes.event;
+
+import lombok.Data;
+
+@Data
+public class ProfileChangedEvent {
+    private final Long userId;
+}
@@ -0,0 +1,63 @@
+package com.lcorp.notes.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+// Progress of one import, committed together with each chunk it creates, so an
+// interrupted upload can be sent again and pick up after the last chunk.
+@Entity
+@Table(name = "import_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(generator = "increment")
+    @GenericGenerator(name = "increment", type = ShardedIncrementGenerator.class)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(nullable = false, length = 16)
+    private String format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // Records (NDJSON lines or ZIP entries) consumed by committed chunks
+    @Column(nullable = false)
+    private Long position = 0L;
+
+    @Column(name = "folders_created", nullable = false)
+    private Integer foldersCreated = 0;
+
+    @Column(name = "notes_created", nullable = false)
+    private Integer notesCreated = 0;
+
+    // JSON map from the folder key in the upload to the id of the folder created for it
+    @Column(name = "folder_map", columnDefinition = "TEXT")
+    private String folderMap;
+
+    @Column(length = 500)
+    private String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
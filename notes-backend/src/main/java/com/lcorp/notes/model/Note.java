@@ -5,8 +5,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 @Entity
@@ -16,16 +18,46 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Note {
 
+    public static final int PREVIEW_LENGTH = 200;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "increment")
+    @GenericGenerator(name = "increment", type = ShardedIncrementGenerator.class)
     private Long id;
 
     @Column(nullable = false, length = 200)
     private String title;
 
+    // Plain text, or "" when the body is kept in content_packed instead
     @Column(columnDefinition = "TEXT", nullable = false)
     private String content = "";
 
+    // Compressed body (see NoteContentCodec), unpacked on first getContent()
+    @Column(name = "content_packed")
+    private byte[] contentPacked;
+
+    // UTF-8 size of a packed body before compression
+    @Column(name = "content_length")
+    private Integer contentLength;
+
+    @Transient
+    private String unpackedContent;
+
+    // The note as it was last loaded or recorded; NoteRevisions keeps it as a
+    // revision when an update replaces it
+    @Transient
+    private Saved saved;
+
+    public record Saved(String title, String content, byte[] contentPacked, LocalDateTime updatedAt) {
+
+        public String text() {
+            return contentPacked != null ? NoteContentCodec.unpack(contentPacked) : content;
+        }
+    }
+
+    @Column(length = PREVIEW_LENGTH)
+    private String preview = "";
+
     @Column(name = "is_favorite", nullable = false)
     private Boolean isFavorite = false;
 
@@ -37,6 +69,10 @@ public class Note {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Position in the global change order, stamped by ChangeTracker
+    @Column(name = "change_version")
+    private Long changeVersion;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
@@ -44,4 +80,48 @@ public class Note {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "folderId")
     private Folder folder;
+
+    @PostLoad
+    void loaded() {
+        markSaved(updatedAt);
+    }
+
+    public void markSaved(LocalDateTime at) {
+        saved = new Saved(title, content, contentPacked, at);
+    }
+
+    public String getContent() {
+        if (contentPacked == null) {
+            return content;
+        }
+        if (unpackedContent == null) {
+            unpackedContent = NoteContentCodec.unpack(contentPacked);
+        }
+        return unpackedContent;
+    }
+
+    public void setContent(String content) {
+        byte[] packed = NoteContentCodec.pack(content);
+        if (packed == null) {
+            this.content = content;
+            this.contentPacked = null;
+            this.contentLength = null;
+            this.unpackedContent = null;
+        } else {
+            this.content = "";
+            this.contentPacked = packed;
+            this.contentLength = content.getBytes(StandardCharsets.UTF_8).length;
+            this.unpackedContent = content;
+        }
+        this.preview = previewOf(content);
+    }
+
+    // Collapsed whitespace keeps the snippet readable in one line of the list
+    public static String previewOf(String content) {
+        if (content == null) {
+            return "";
+        }
+        String collapsed = content.replaceAll("\\s+", " ").trim();
+        return collapsed.length() > PREVIEW_LENGTH ? collapsed.substring(0, PREVIEW_LENGTH) : collapsed;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.lcorp.notes.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Packs large note bodies for the content_packed column. The first byte names
+// the codec so another one can be added without touching stored rows.
+// Configured once at startup by ContentCompactor; entities cannot take beans.
+public final class NoteContentCodec {
+
+    public static final byte DEFLATE = 1;
+
+    private static volatile boolean enabled;
+    private static volatile int thresholdBytes = Integer.MAX_VALUE;
+
+    private NoteContentCodec() {
+    }
+
+    public static void configure(boolean enabled, int thresholdBytes) {
+        NoteContentCodec.enabled = enabled;
+        NoteContentCodec.thresholdBytes = thresholdBytes;
+    }
+
+    // Null when the text should be stored as plain TEXT: compression is off,
+    // the text is below the threshold, or it does not get any smaller
+    public static byte[] pack(String content) {
+        // A UTF-16 unit never takes more than 3 bytes of UTF-8
+        if (!enabled || content == null || content.length() * 3L < thresholdBytes) {
+            return null;
+        }
+
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < thresholdBytes) {
+            return null;
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+            out.write(DEFLATE);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+                if (out.size() >= raw.length) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String unpack(byte[] packed) {
+        if (packed.length == 0 || packed[0] != DEFLATE) {
+            throw new IllegalStateException("Unknown note content codec " + (packed.length == 0 ? "(empty)" : packed[0]));
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(packed, 1, packed.length - 1);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(packed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated note content");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt note content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.lcorp.notes.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+
+// An earlier state of a note; the current one is the note itself. Stored as a
+// reverse delta from the next newer state (the next revision, or the note for
+// the newest one), or in full every few revisions so rebuilding an old one
+// never walks a long chain. See RevisionCodec and NoteRevisions.
+@Entity
+@Table(name = "note_revisions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteRevision {
+
+    public enum Kind { FULL, DELTA }
+
+    @Id
+    @GeneratedValue(generator = "increment")
+    @GenericGenerator(name = "increment", type = ShardedIncrementGenerator.class)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    // Counts up per note; thinning leaves gaps
+    @Column(nullable = false)
+    private Integer revision;
+
+    @Column(nullable = false, length = 200)
+    private String title;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Kind kind;
+
+    @Column(nullable = false)
+    private byte[] data;
+
+    // UTF-8 size of the text this revision stands for
+    @Column(name = "content_length", nullable = false)
+    private Integer contentLength;
+
+    // When the note was saved in this state
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
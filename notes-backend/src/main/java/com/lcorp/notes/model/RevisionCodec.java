@@ -0,0 +1,210 @@
+package com.lcorp.notes.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Encodes note revisions (see NoteRevision). A full revision is the deflated
+// text. A delta rebuilds a text from a newer one: the common prefix and suffix
+// are taken as they are, and the middle is a list of copies from the newer
+// text and inserted characters, found by matching BLOCK-character blocks of
+// the newer text the way rsync does. The result is deflated too.
+//
+// Offsets count UTF-16 units, and inserted characters are stored as such, so
+// a copy may end between the halves of a surrogate pair.
+public final class RevisionCodec {
+
+    private static final int BLOCK = 16;
+
+    private static final int COPY = 0;
+    private static final int INSERT = 1;
+    private static final int END = 2;
+
+    private RevisionCodec() {
+    }
+
+    public static byte[] full(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() / 3 + 16);
+        try (DataOutputStream out = deflating(bytes)) {
+            out.writeInt(text.length());
+            out.writeChars(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static String unpackFull(byte[] packed) {
+        try (DataInputStream in = inflating(packed)) {
+            return readChars(in, in.readInt());
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt revision", e);
+        }
+    }
+
+    // What turns newer back into older
+    public static byte[] delta(String newer, String older) {
+        int prefix = 0;
+        int max = Math.min(newer.length(), older.length());
+        while (prefix < max && newer.charAt(prefix) == older.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        max -= prefix;
+        while (suffix < max && newer.charAt(newer.length() - 1 - suffix) == older.charAt(older.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = deflating(bytes)) {
+            writeVarInt(out, prefix);
+            writeVarInt(out, suffix);
+            writeMiddle(out, newer, older, prefix, older.length() - suffix);
+            out.writeByte(END);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static String apply(String newer, byte[] delta) {
+        try (DataInputStream in = inflating(delta)) {
+            int prefix = readVarInt(in);
+            int suffix = readVarInt(in);
+
+            StringBuilder older = new StringBuilder(newer.length());
+            older.append(newer, 0, prefix);
+            for (int op = in.readByte(); op != END; op = in.readByte()) {
+                if (op == COPY) {
+                    int offset = readVarInt(in);
+                    older.append(newer, offset, offset + readVarInt(in));
+                } else if (op == INSERT) {
+                    older.append(readChars(in, readVarInt(in)));
+                } else {
+                    throw new IllegalStateException("Corrupt revision delta");
+                }
+            }
+            older.append(newer, newer.length() - suffix, newer.length());
+            return older.toString();
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Corrupt revision delta", e);
+        }
+    }
+
+    // older[from, to) as copies out of newer and inserted text
+    private static void writeMiddle(DataOutputStream out, String newer, String older, int from, int to)
+            throws IOException {
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= newer.length(); i += BLOCK) {
+            blocks.putIfAbsent(hash(newer, i), i);
+        }
+
+        int literalStart = from;
+        int position = from;
+        while (position + BLOCK <= to) {
+            Integer match = blocks.get(hash(older, position));
+            if (match == null || !newer.regionMatches(match, older, position, BLOCK)) {
+                position++;
+                continue;
+            }
+
+            // Grow the match both ways before copying it
+            int source = match;
+            int start = position;
+            while (start > literalStart && source > 0 && newer.charAt(source - 1) == older.charAt(start - 1)) {
+                source--;
+                start--;
+            }
+            int end = position + BLOCK;
+            int sourceEnd = match + BLOCK;
+            while (end < to && sourceEnd < newer.length() && newer.charAt(sourceEnd) == older.charAt(end)) {
+                end++;
+                sourceEnd++;
+            }
+
+            writeInsert(out, older, literalStart, start);
+            out.writeByte(COPY);
+            writeVarInt(out, source);
+            writeVarInt(out, end - start);
+            literalStart = end;
+            position = end;
+        }
+        writeInsert(out, older, literalStart, to);
+    }
+
+    private static void writeInsert(DataOutputStream out, String text, int from, int to) throws IOException {
+        if (to > from) {
+            out.writeByte(INSERT);
+            writeVarInt(out, to - from);
+            out.writeChars(text.substring(from, to));
+        }
+    }
+
+    private static int hash(String text, int from) {
+        int hash = 0;
+        for (int i = from; i < from + BLOCK; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+    private static DataOutputStream deflating(ByteArrayOutputStream bytes) {
+        return new DataOutputStream(new BufferedOutputStream(
+                new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION, true)) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        def.end();
+                    }
+                }));
+    }
+
+    private static DataInputStream inflating(byte[] packed) {
+        return new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(packed), new Inflater(true)) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inf.end();
+                    }
+                }));
+    }
+
+    private static String readChars(DataInputStream in, int length) throws IOException {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed length");
+    }
+}
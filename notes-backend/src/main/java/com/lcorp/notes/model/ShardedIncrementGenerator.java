@@ -0,0 +1,89 @@
+package com.lcorp.notes.model;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hands out ids from blocks reserved on disk before use (see UserDirectory),
+// so an id is never reused on any shard, not even after a restart
+public class ShardedIncrementGenerator implements IdentifierGenerator {
+
+    static final int BLOCK_SIZE = 50;
+
+    // Stores that the ids in [first, first + size) are taken, where first is
+    // the larger of floor and the end of the previous block; returns first
+    @FunctionalInterface
+    public interface Reservations {
+        long reserve(String sequence, long floor, int size);
+    }
+
+    // Largest value the query returns on any shard having the table, 0 if none
+    @FunctionalInterface
+    public interface ShardMax {
+        long max(String table, String sql);
+    }
+
+    private static final Map<String, Block> BLOCKS = new ConcurrentHashMap<>();
+    private static volatile ShardMax maxAcrossShards;
+    private static volatile Reservations reservations;
+
+    private String table;
+    private String column;
+
+    // Called by UserDirectory before the first insert
+    public static void configure(ShardMax maxAcrossShards, Reservations reservations) {
+        ShardedIncrementGenerator.maxAcrossShards = maxAcrossShards;
+        ShardedIncrementGenerator.reservations = reservations;
+        BLOCKS.clear();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        table = parameters.getProperty(PersistentIdentifierGenerator.TABLE);
+        column = parameters.getProperty(PersistentIdentifierGenerator.PK);
+        if (table == null || column == null) {
+            throw new MappingException("ShardedIncrementGenerator needs a table and an id column");
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        ShardMax max = maxAcrossShards;
+        Reservations store = reservations;
+        if (max == null || store == null) {
+            throw new IllegalStateException("Shards have not been configured yet");
+        }
+
+        Block block = BLOCKS.computeIfAbsent(table, name -> new Block());
+        block.lock.lock();
+        try {
+            if (block.next == block.end) {
+                long floor = block.end;
+                if (floor == 0) {
+                    floor = Math.max(
+                            max.max(table, "SELECT max(" + column + ") FROM " + table) + 1,
+                            max.max(table + "_seq", "SELECT max(next_val) FROM " + table + "_seq"));
+                }
+                block.next = store.reserve(table, floor, BLOCK_SIZE);
+                block.end = block.next + BLOCK_SIZE;
+            }
+            return block.next++;
+        } finally {
+            block.lock.unlock();
+        }
+    }
+
+    private static class Block {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long next;
+        private long end;
+    }
+}
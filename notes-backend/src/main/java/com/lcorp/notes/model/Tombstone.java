@@ -0,0 +1,41 @@
+package com.lcorp.notes.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Marks a deleted note or folder so delta sync can tell clients to drop it
+@Entity
+@Table(name = "tombstones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Tombstone {
+
+    public enum EntityType { NOTE, FOLDER }
+
+    // Assigned by the INSERT ... SELECT statements in ChangeTracker
+    @Id
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "change_version", nullable = false)
+    private Long changeVersion;
+
+    @CreationTimestamp
+    @Column(name = "deleted_at", nullable = false, updatable = false)
+    private LocalDateTime deletedAt;
+}
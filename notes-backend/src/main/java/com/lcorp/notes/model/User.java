@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -17,8 +18,10 @@ import java.util.List;
 @AllArgsConstructor
 public class User {
 
+    // New accounts are inserted with the id UserDirectory hands out
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "increment")
+    @GenericGenerator(name = "increment", type = ShardedIncrementGenerator.class)
     private Long id;
 
     @Column(unique = true, nullable = false, length = 255)
@@ -34,9 +37,20 @@ public class User {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Bumped with plain SQL by DataVersions on every change to the user's data;
+    // read-only here so saving a User never writes back a stale value
+    @Column(name = "data_version", insertable = false, updatable = false)
+    private Long dataVersion;
+
+    // Highest change version among the user's tombstones that ChangeTracker
+    // has pruned; a sync cursor below it may have missed deletes
+    @Column(name = "pruned_version", insertable = false, updatable = false)
+    private Long prunedVersion;
+
+    // Not cascaded: ProfileController deletes an account's data set-based
+    @OneToMany(mappedBy = "owner")
     private List<Folder> folders = new ArrayList<>();
 
-    @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(mappedBy = "owner")
     private List<Note> notes = new ArrayList<>();
 }
\ No newline at end of file
@@ -1,14 +1,36 @@
 package com.lcorp.notes.repository;
 
+import com.lcorp.notes.dto.TitleMatch;
 import com.lcorp.notes.model.Folder;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface FolderRepository extends JpaRepository<Folder, Long> {
     List<Folder> findByOwnerIdOrderByCreatedAtDesc(Long ownerId);
     Optional<Folder> findByIdAndOwnerId(Long id, Long ownerId);
+    List<Folder> findByOwnerIdAndIdIn(Long ownerId, Collection<Long> ids);
+    List<Folder> findByOwnerIdAndChangeVersionBetween(Long ownerId, Long from, Long to);
+
+    @Query("select new com.lcorp.notes.dto.TitleMatch(f.id, f.name) from Folder f where f.owner.id = :ownerId")
+    List<TitleMatch> findTitlesByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Folder f where f.id = :id")
+    int deleteFolderById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Folder f where f.owner.id = :ownerId")
+    int deleteByOwnerId(@Param("ownerId") Long ownerId);
 }
\ No newline at end of file
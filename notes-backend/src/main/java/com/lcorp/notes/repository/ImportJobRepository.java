@@ -0,0 +1,24 @@
+package com.lcorp.notes.repository;
+
+import com.lcorp.notes.model.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Transactional(readOnly = true)
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+    List<ImportJob> findByOwnerIdOrderByCreatedAtDesc(Long ownerId);
+    Optional<ImportJob> findByIdAndOwnerId(Long id, Long ownerId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ImportJob j where j.ownerId = :ownerId")
+    void deleteByOwnerId(@Param("ownerId") Long ownerId);
+}
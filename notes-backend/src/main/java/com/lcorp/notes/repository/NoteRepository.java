@@ -1,15 +1,49 @@
 package com.lcorp.notes.repository;
 
+import com.lcorp.notes.dto.TitleMatch;
 import com.lcorp.notes.model.Note;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
+@Transactional(readOnly = true)
+public interface NoteRepository extends JpaRepository<Note, Long>, NoteRepositoryCustom {
     List<Note> findByOwnerIdOrderByUpdatedAtDesc(Long ownerId);
     List<Note> findByOwnerIdAndFolderIdOrderByUpdatedAtDesc(Long ownerId, Long folderId);
+    List<Note> findByOwnerIdAndIsFavoriteTrueOrderByUpdatedAtDesc(Long ownerId);
     Optional<Note> findByIdAndOwnerId(Long id, Long ownerId);
+    List<Note> findByOwnerIdAndIdIn(Long ownerId, Collection<Long> ids);
+    List<Note> findByOwnerIdAndChangeVersionBetween(Long ownerId, Long from, Long to);
+    long countByOwnerIdAndChangeVersionBetween(Long ownerId, Long from, Long to);
+
+    @Query("select new com.lcorp.notes.dto.TitleMatch(n.id, n.title) from Note n where n.owner.id = :ownerId")
+    List<TitleMatch> findTitlesByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Note n where n.folder.id = :folderId")
+    int deleteByFolderId(@Param("folderId") Long folderId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Note n where n.owner.id = :ownerId")
+    int deleteByOwnerId(@Param("ownerId") Long ownerId);
+
+    // Forward-only scan in id order; must be consumed inside the caller's transaction
+    @Query("select n from Note n where n.owner.id = :ownerId and n.id > :afterId order by n.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<Note> streamByOwnerIdAfter(@Param("ownerId") Long ownerId, @Param("afterId") Long afterId, Limit limit);
 }
\ No newline at end of file
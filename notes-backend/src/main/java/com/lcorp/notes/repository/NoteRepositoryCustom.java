@@ -0,0 +1,10 @@
+package com.lcorp.notes.repository;
+
+import com.lcorp.notes.dto.NoteCursor;
+import com.lcorp.notes.dto.NoteSummaryResponse;
+
+import java.util.List;
+
+public interface NoteRepositoryCustom {
+    List<NoteSummaryResponse> findSummaries(Long ownerId, Long folderId, boolean favoritesOnly, NoteCursor after, int limit);
+}
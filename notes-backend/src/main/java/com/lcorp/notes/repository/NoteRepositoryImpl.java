@@ -0,0 +1,52 @@
+package com.lcorp.notes.repository;
+
+import com.lcorp.notes.dto.NoteCursor;
+import com.lcorp.notes.dto.NoteSummaryResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Keyset pagination: the page starts strictly after the cursor, so the
+    // cost of a page does not depend on how deep into the list it is.
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteSummaryResponse> findSummaries(Long ownerId, Long folderId, boolean favoritesOnly, NoteCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "select new com.lcorp.notes.dto.NoteSummaryResponse(" +
+                "n.id, n.title, n.preview, n.isFavorite, n.folder.id, n.updatedAt) " +
+                "from Note n where n.owner.id = :ownerId");
+
+        if (folderId != null) {
+            jpql.append(" and n.folder.id = :folderId");
+        }
+        if (favoritesOnly) {
+            jpql.append(" and n.isFavorite = true");
+        }
+        if (after != null) {
+            jpql.append(" and (n.updatedAt < :updatedAt or (n.updatedAt = :updatedAt and n.id < :id))");
+        }
+        jpql.append(" order by n.updatedAt desc, n.id desc");
+
+        TypedQuery<NoteSummaryResponse> query = entityManager.createQuery(jpql.toString(), NoteSummaryResponse.class)
+                .setParameter("ownerId", ownerId)
+                .setMaxResults(limit);
+
+        if (folderId != null) {
+            query.setParameter("folderId", folderId);
+        }
+        if (after != null) {
+            query.setParameter("updatedAt", after.getUpdatedAt());
+            query.setParameter("id", after.getId());
+        }
+
+        return query.getResultList();
+    }
+}
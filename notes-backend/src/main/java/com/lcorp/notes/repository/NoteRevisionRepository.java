@@ -0,0 +1,64 @@
+package com.lcorp.notes.repository;
+
+import com.lcorp.notes.model.NoteRevision;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Transactional(readOnly = true)
+public interface NoteRevisionRepository extends JpaRepository<NoteRevision, Long> {
+    Optional<NoteRevision> findFirstByNoteIdOrderByRevisionDesc(Long noteId);
+    List<NoteRevision> findByNoteIdOrderByRevisionDesc(Long noteId);
+
+    // The revision asked for and every newer one, down from the closest full
+    // one above it (or from the newest, if there is none)
+    @Query("select r from NoteRevision r where r.noteId = :noteId and r.revision >= :revision " +
+           "and r.revision <= coalesce((select min(f.revision) from NoteRevision f where f.noteId = :noteId " +
+           "and f.revision >= :revision and f.kind = FULL), r.revision) " +
+           "order by r.revision desc")
+    List<NoteRevision> findChain(@Param("noteId") Long noteId, @Param("revision") Integer revision);
+
+    // Deltas stacked on top of the newest full revision
+    @Query("select count(r) from NoteRevision r where r.noteId = :noteId " +
+           "and r.revision > coalesce((select max(f.revision) from NoteRevision f where f.noteId = :noteId " +
+           "and f.kind = FULL), 0)")
+    long countDeltasOnTop(@Param("noteId") Long noteId);
+
+    // Notes with revisions older than the given time, in id order, for thinning
+    @Query("select distinct r.noteId from NoteRevision r where r.noteId > :afterNoteId and r.createdAt < :before " +
+           "order by r.noteId")
+    List<Long> findNoteIdsWithRevisionsBefore(@Param("afterNoteId") Long afterNoteId,
+                                              @Param("before") LocalDateTime before,
+                                              Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from NoteRevision r where r.noteId = :noteId")
+    void deleteByNoteId(@Param("noteId") Long noteId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from NoteRevision r where r.noteId in :noteIds")
+    void deleteByNoteIdIn(@Param("noteIds") Collection<Long> noteIds);
+
+    // Before the folder's notes are deleted (see FolderChangedEvent)
+    @Transactional
+    @Modifying
+    @Query("delete from NoteRevision r where r.noteId in (select n.id from Note n where n.folder.id = :folderId)")
+    void deleteByFolderId(@Param("folderId") Long folderId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from NoteRevision r where r.ownerId = :ownerId")
+    void deleteByOwnerId(@Param("ownerId") Long ownerId);
+}
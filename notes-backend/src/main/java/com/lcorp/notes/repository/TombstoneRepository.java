@@ -0,0 +1,23 @@
+package com.lcorp.notes.repository;
+
+import com.lcorp.notes.model.Tombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+    List<Tombstone> findByOwnerIdAndChangeVersionBetween(Long ownerId, Long from, Long to);
+    long countByOwnerIdAndChangeVersionBetween(Long ownerId, Long from, Long to);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Tombstone t where t.ownerId = :ownerId")
+    void deleteByOwnerId(@Param("ownerId") Long ownerId);
+}
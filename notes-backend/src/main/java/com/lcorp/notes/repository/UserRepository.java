@@ -2,12 +2,20 @@ package com.lcorp.notes.repository;
 
 import com.lcorp.notes.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Empty once the account is gone; its tokens stay valid until they expire
+    @Query("select coalesce(u.prunedVersion, 0) from User u where u.id = :id")
+    Optional<Long> findPrunedVersionById(@Param("id") Long id);
 }
\ No newline at end of file
@@ -1,70 +0,0 @@
-package com.lcorp.notes.security;
-
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseToken;
-import com.lcorp.notes.model.User;
-import com.lcorp.notes.repository.UserRepository;
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.stereotype.Component;
-import org.springframework.web.filter.OncePerRequestFilter;
-
-import java.io.IOException;
-import java.util.ArrayList;
-
-@Component
-public class FirebaseAuthenticationFilter extends OncePerRequestFilter {
-
-    private final UserRepository userRepository;
-
-    public FirebaseAuthenticationFilter(UserRepository userRepository) {
-        this.userRepository = userRepository;
-    }
-
-    @Override
-    protected void doFilterInternal(HttpServletRequest request,
-                                    HttpServletResponse response,
-                                    FilterChain filterChain) throws ServletException, IOException {
-
-        String authHeader = request.getHeader("Authorization");
-
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-
-            try {
-                // Try to verify as Firebase token
-                FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(token);
-                String firebaseUid = decodedToken.getUid();
-                String email = decodedToken.getEmail();
-
-                // Find or create user based on Firebase UID
-                User user = userRepository.findByEmail(email)
-                        .orElseGet(() -> {
-                            // Auto-create user from Firebase
-                            User newUser = new User();
-                            newUser.setEmail(email);
-                            newUser.setName(decodedToken.getName() != null ? decodedToken.getName() : email);
-                            newUser.setPasswordHash(""); // No password for Firebase users
-                            return userRepository.save(newUser);
-                        });
-
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(user.getId(), null, new ArrayList<>());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            } catch (Exception e) {
-                // Not a Firebase token, will be handled by JWT filter
-                logger.debug("Not a Firebase token: " + e.getMessage());
-            }
-        }
-
-        filterChain.doFilter(request, response);
-    }
-}
\ No newline at end of file
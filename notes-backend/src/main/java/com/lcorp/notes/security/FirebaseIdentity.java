@@ -0,0 +1,14 @@
+package com.lcorp.notes.security;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class FirebaseIdentity {
+    private final String uid;
+    private final String email;
+    private final boolean emailVerified;
+    private final String name;
+    private final Instant expiresAt;
+}
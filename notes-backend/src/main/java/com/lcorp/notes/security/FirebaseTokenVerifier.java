@@ -0,0 +1,189 @@
+package com.lcorp.notes.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.SecurityException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Verifies Firebase ID tokens locally against Google's published signing
+// certificates. The certificates are fetched in the background on a schedule,
+// so verifying a token never waits on the network in the steady state.
+//
+// Makes the same checks as FirebaseAuth.verifyIdToken, as documented at
+// firebase.google.com/docs/auth/admin/verify-id-tokens:
+//   alg        RS256
+//   kid        one of the current signing certificates
+//   signature  valid for that certificate's key
+//   exp        in the future
+//   iat        in the past
+//   aud        the project id, and nothing else
+//   iss        https://securetoken.google.com/<project id>
+//   sub        non-empty, at most 128 characters (the uid)
+//   auth_time  in the past
+// Times allow the SDK's clock skew either way.
+@Component
+public class FirebaseTokenVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(FirebaseTokenVerifier.class);
+
+    // Avoid hammering Google when tokens signed with an unknown key arrive
+    private static final Duration MIN_ON_DEMAND_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+    private static final int MAX_UID_LENGTH = 128;
+
+    private final String projectId;
+    private final String keysUrl;
+    private final JwtParser parser;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile Map<String, PublicKey> publicKeys = Map.of();
+    private volatile long lastRefreshAttempt;
+    // Not synchronized: a thread waiting on the HTTP fetch would pin its
+    // carrier when requests run on virtual threads
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public FirebaseTokenVerifier(@Value("${firebase.project-id}") String projectId,
+                                 @Value("${firebase.keys.url}") String keysUrl) {
+        this.projectId = projectId;
+        this.keysUrl = keysUrl;
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(ProtectedHeader header) {
+                        if (!"RS256".equals(header.getAlgorithm())) {
+                            throw new SecurityException("Unexpected signing algorithm " + header.getAlgorithm());
+                        }
+                        return publicKey(header.getKeyId());
+                    }
+                })
+                .requireIssuer(issuerFor(projectId))
+                .requireAudience(projectId)
+                .clockSkewSeconds(CLOCK_SKEW.toSeconds())
+                .build();
+    }
+
+    public static String issuerFor(String projectId) {
+        return "https://securetoken.google.com/" + projectId;
+    }
+
+    public FirebaseIdentity verify(String token) throws JwtException {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+
+        String uid = claims.getSubject();
+        if (uid == null || uid.isEmpty()) {
+            throw new JwtException("Firebase token has no subject");
+        }
+        if (uid.length() > MAX_UID_LENGTH) {
+            throw new JwtException("Firebase token subject is longer than " + MAX_UID_LENGTH + " characters");
+        }
+        // requireAudience accepts the project among several audiences
+        if (!Set.of(projectId).equals(claims.getAudience())) {
+            throw new JwtException("Firebase token is not only for this project");
+        }
+        if (claims.getExpiration() == null) {
+            throw new JwtException("Firebase token has no expiration time");
+        }
+
+        // The parser checks exp and nbf but leaves the other times alone
+        Instant latest = Instant.now().plus(CLOCK_SKEW);
+        Date issuedAt = claims.getIssuedAt();
+        if (issuedAt == null || issuedAt.toInstant().isAfter(latest)) {
+            throw new JwtException("Firebase token has no issue time or one in the future");
+        }
+        Number authTime = claims.get("auth_time", Number.class);
+        if (authTime == null || Instant.ofEpochSecond(authTime.longValue()).isAfter(latest)) {
+            throw new JwtException("Firebase token has no auth_time or one in the future");
+        }
+
+        return new FirebaseIdentity(
+                uid,
+                claims.get("email", String.class),
+                Boolean.TRUE.equals(claims.get("email_verified", Boolean.class)),
+                claims.get("name", String.class),
+                claims.getExpiration().toInstant());
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${firebase.keys.refresh-interval}")
+    public void refreshPublicKeys() {
+        refreshLock.lock();
+        try {
+            lastRefreshAttempt = System.currentTimeMillis();
+            try {
+                HttpResponse<String> response = httpClient.send(
+                        HttpRequest.newBuilder(URI.create(keysUrl)).timeout(Duration.ofSeconds(10)).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+
+                if (response.statusCode() != 200) {
+                    log.warn("Fetching Firebase signing keys failed with HTTP {}", response.statusCode());
+                    return;
+                }
+
+                Map<String, String> certificates = objectMapper.readValue(response.body(), new TypeReference<>() {});
+                CertificateFactory factory = CertificateFactory.getInstance("X.509");
+                Map<String, PublicKey> keys = new HashMap<>();
+                for (Map.Entry<String, String> entry : certificates.entrySet()) {
+                    byte[] pem = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                    keys.put(entry.getKey(), factory.generateCertificate(new ByteArrayInputStream(pem)).getPublicKey());
+                }
+                updatePublicKeys(keys);
+            } catch (IOException | CertificateException e) {
+                log.warn("Fetching Firebase signing keys failed: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    void updatePublicKeys(Map<String, PublicKey> keys) {
+        publicKeys = Map.copyOf(keys);
+    }
+
+    private PublicKey publicKey(String keyId) {
+        PublicKey key = publicKeys.get(keyId);
+        if (key == null && System.currentTimeMillis() - lastRefreshAttempt > MIN_ON_DEMAND_REFRESH_INTERVAL.toMillis()) {
+            // Only reached before the first scheduled fetch succeeded, or when
+            // Google rotated keys since the last one
+            refreshPublicKeys();
+            key = publicKeys.get(keyId);
+        }
+        if (key == null) {
+            throw new SecurityException("Unknown Firebase signing key " + keyId);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,85 @@
+package com.lcorp.notes.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.Function;
+
+// Remembers which user a verified Firebase token belongs to until the token
+// expires, and which user id an email resolves to, so repeat requests skip
+// both the signature check and the users table.
+@Component
+public class FirebaseUserCache {
+
+    private final Cache<String, VerifiedToken> tokens;
+    private final Cache<String, Long> userIdsByEmail;
+
+    public FirebaseUserCache(@Value("${firebase.token-cache.max-size:10000}") long maxTokens,
+                             @Value("${firebase.email-cache.max-size:10000}") long maxEmails) {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxTokens)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), value.expiresAt).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.userIdsByEmail = Caffeine.newBuilder()
+                .maximumSize(maxEmails)
+                .build();
+    }
+
+    public Long getUserId(String token) {
+        VerifiedToken verified = tokens.getIfPresent(digest(token));
+        return verified != null ? verified.userId : null;
+    }
+
+    public void putToken(String token, Long userId, Instant expiresAt) {
+        tokens.put(digest(token), new VerifiedToken(userId, expiresAt));
+    }
+
+    public Long getUserIdByEmail(String email, Function<String, Long> resolver) {
+        return userIdsByEmail.get(email, resolver);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        userIdsByEmail.invalidate(event.getEmail());
+        tokens.asMap().values().removeIf(verified -> verified.userId.equals(event.getUserId()));
+    }
+
+    // Only a digest of the bearer token is kept in memory
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedToken(Long userId, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.lcorp.notes.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs BCrypt on a few threads with a bounded queue. Work that finds the queue
+// full, or waits longer than max-wait, gets HashingRejectedException.
+@Component
+public class PasswordHashingPool {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+
+    private final Timer queueWait;
+    private final Counter queueFull;
+    private final Counter timedOut;
+
+    public PasswordHashingPool(PasswordEncoder passwordEncoder,
+                               @Value("${notes.auth.hashing.threads}") int threads,
+                               @Value("${notes.auth.hashing.queue-capacity}") int queueCapacity,
+                               @Value("${notes.auth.hashing.max-wait}") Duration maxWait,
+                               MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Hash time itself is notes.auth.password (TimedPasswordEncoder)
+        Gauge.builder("notes.auth.password.queue", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("notes.auth.password.wait")
+                .description("Time a hash or check waited for a password hashing thread")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueFull = Counter.builder("notes.auth.password.rejected")
+                .tag("reason", "queue-full")
+                .register(meterRegistry);
+        this.timedOut = Counter.builder("notes.auth.password.rejected")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T run(Callable<T> work) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return work.call();
+            });
+        } catch (RejectedExecutionException e) {
+            queueFull.increment();
+            throw new HashingRejectedException();
+        }
+
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Drops it from the queue if no thread has picked it up yet
+            future.cancel(false);
+            executor.remove((Runnable) future);
+            timedOut.increment();
+            throw new HashingRejectedException();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new HashingRejectedException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Answered with 503 and Retry-After by the controllers that hash passwords
+    public static class HashingRejectedException extends RuntimeException {
+        HashingRejectedException() {
+            super("Password hashing is at capacity", null, false, false);
+        }
+    }
+}
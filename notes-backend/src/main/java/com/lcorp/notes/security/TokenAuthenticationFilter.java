@@ -0,0 +1,135 @@
+package com.lcorp.notes.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.service.UserDirectory;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+
+// Authenticates both kinds of bearer token we accept. The unverified issuer
+// decides which verifier a token goes to, so every token is verified exactly
+// once and a valid token never goes through a failing verifier first.
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private final UserDirectory userDirectory;
+    private final Shards shards;
+    private final JwtUtil jwtUtil;
+    private final FirebaseTokenVerifier firebaseTokenVerifier;
+    private final FirebaseUserCache firebaseUserCache;
+    private final String firebaseIssuer;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public TokenAuthenticationFilter(UserDirectory userDirectory,
+                                     Shards shards,
+                                     JwtUtil jwtUtil,
+                                     FirebaseTokenVerifier firebaseTokenVerifier,
+                                     FirebaseUserCache firebaseUserCache,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${firebase.project-id}") String firebaseProjectId) {
+        this.userDirectory = userDirectory;
+        this.shards = shards;
+        this.jwtUtil = jwtUtil;
+        this.firebaseTokenVerifier = firebaseTokenVerifier;
+        this.firebaseUserCache = firebaseUserCache;
+        this.meterRegistry = meterRegistry;
+        this.firebaseIssuer = FirebaseTokenVerifier.issuerFor(firebaseProjectId);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        String authHeader = request.getHeader("Authorization");
+        Long userId = null;
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            boolean firebase = firebaseIssuer.equals(peekIssuer(token));
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            userId = firebase ? authenticateFirebase(token) : jwtUtil.parseUserId(token);
+            sample.stop(Timer.builder("notes.auth.token")
+                    .tag("issuer", firebase ? "firebase" : "jwt")
+                    .tag("outcome", userId != null ? "accepted" : "rejected")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+
+            if (userId != null) {
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(userId, null, new ArrayList<>());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+
+        // Everything the request reads or writes is on the user's shard
+        try (ShardContext.Scope scope = userId != null ? shards.enter(userId) : null) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private Long authenticateFirebase(String token) {
+        Long userId = firebaseUserCache.getUserId(token);
+        if (userId != null) {
+            return userId;
+        }
+
+        try {
+            FirebaseIdentity identity = firebaseTokenVerifier.verify(token);
+            // Accounts are keyed by email; phone and anonymous sign-ins have none
+            if (identity.getEmail() == null || !identity.isEmailVerified()) {
+                logger.debug("Rejected Firebase token without a verified email");
+                return null;
+            }
+            userId = firebaseUserCache.getUserIdByEmail(identity.getEmail(),
+                    email -> userDirectory.findOrCreate(email,
+                            identity.getName() != null ? identity.getName() : email).getId());
+            firebaseUserCache.putToken(token, userId, identity.getExpiresAt());
+            return userId;
+        } catch (JwtException e) {
+            logger.debug("Rejected Firebase token: " + e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            // The request goes on unauthenticated rather than failing with a 5xx
+            logger.warn("Could not authenticate Firebase token", e);
+            return null;
+        }
+    }
+
+    // Reads the iss claim without verifying anything; only used for routing
+    private String peekIssuer(String token) {
+        int start = token.indexOf('.');
+        int end = token.indexOf('.', start + 1);
+        if (start < 0 || end < 0) {
+            return null;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(start + 1, end));
+            JsonNode issuer = objectMapper.readTree(payload).get("iss");
+            return issuer != null ? issuer.asText() : null;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.dto.FolderResponse;
+import com.lcorp.notes.dto.NoteSummaryResponse;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.event.NotesImportedEvent;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.Tombstone;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import com.lcorp.notes.repository.TombstoneRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes each user's committed note and folder changes to their open
+// /api/events streams. An idle subscriber is an emitter and a small queue in a
+// per-user set; nothing holds a thread for it. Events are queued when the
+// transaction commits and written by a few sender threads, each subscriber's
+// in order, so a slow client never holds up the writer.
+//
+// Every event's id is ChangeTracker's committed version at the time it was
+// queued: all changes up to it have been queued before it. A client that
+// reconnects with Last-Event-ID gets everything after that replayed from the
+// database (possibly repeating its last few events), or a "resync" event
+// pointing it at /api/sync/changes when the gap is too large to replay.
+@Service
+public class ChangeStream {
+
+    private final ChangeTracker changeTracker;
+    private final NoteRepository noteRepository;
+    private final FolderRepository folderRepository;
+    private final TombstoneRepository tombstoneRepository;
+    private final Duration timeout;
+    private final int bufferSize;
+    private final int replayLimit;
+    private final ExecutorService sender;
+    private final Counter dropped;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    public ChangeStream(ChangeTracker changeTracker,
+                        NoteRepository noteRepository,
+                        FolderRepository folderRepository,
+                        TombstoneRepository tombstoneRepository,
+                        @Value("${notes.events.timeout}") Duration timeout,
+                        @Value("${notes.events.buffer-size}") int bufferSize,
+                        @Value("${notes.events.replay-limit}") int replayLimit,
+                        @Value("${notes.events.send-threads}") int sendThreads,
+                        MeterRegistry meterRegistry) {
+        this.changeTracker = changeTracker;
+        this.noteRepository = noteRepository;
+        this.folderRepository = folderRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.timeout = timeout;
+        this.bufferSize = bufferSize;
+        this.replayLimit = replayLimit;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "change-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("notes.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open change streams")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("notes.events.dropped")
+                .description("Change streams closed because the client fell too far behind")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        sender.shutdownNow();
+    }
+
+    // Runs in the request's read-only transaction, on the user's shard
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(timeout.toMillis()));
+
+        // Registered before reading, so nothing committed from here on is missed
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriberCount.incrementAndGet();
+        subscriber.emitter.onCompletion(subscriber::remove);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.remove());
+
+        try {
+            long upTo = changeTracker.committedVersion();
+            subscriber.resume(initialEvents(userId, parseCursor(lastEventId), upTo));
+        } catch (RuntimeException e) {
+            subscriber.remove();
+            throw e;
+        }
+        return subscriber.emitter;
+    }
+
+    // Keeps proxies from closing idle streams, and finds clients that went away
+    @Scheduled(fixedDelayString = "${notes.events.heartbeat}", initialDelayString = "${notes.events.heartbeat}")
+    public void heartbeat() {
+        Set<DataWithMediaType> comment = SseEmitter.event().comment("").build();
+        for (Set<Subscriber> userSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.offer(comment);
+            }
+        }
+    }
+
+    @EventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        Note note = event.getNote();
+        afterCommit(event.getOwnerId(), () -> switch (event.getType()) {
+            case CREATED -> event("note.created", summary(note));
+            case UPDATED -> event("note.updated", summary(note));
+            case FAVORITED -> event("note.favorited", summary(note));
+            case DELETED -> event("note.deleted", Map.of("id", note.getId()));
+        });
+    }
+
+    @EventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        Folder folder = event.getFolder();
+        afterCommit(event.getOwnerId(), () -> switch (event.getType()) {
+            case CREATED -> event("folder.created", summary(folder));
+            case RENAMED -> event("folder.renamed", summary(folder));
+            case DELETED -> event("folder.deleted", Map.of("id", folder.getId()));
+        });
+    }
+
+    // Too many notes to send one by one; the client reloads its lists
+    @EventListener
+    public void onNotesImported(NotesImportedEvent event) {
+        int notes = event.getNotes().size();
+        int folders = event.getFolders().size();
+        afterCommit(event.getOwnerId(), () -> event("notes.imported", Map.of("notes", notes, "folders", folders)));
+    }
+
+    @EventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        Set<Subscriber> userSubscribers = subscribers.get(event.getUserId());
+        if (userSubscribers != null) {
+            afterCommit(() -> userSubscribers.forEach(Subscriber::close));
+        }
+    }
+
+    private interface EventSource {
+        SseEmitter.SseEventBuilder build();
+    }
+
+    // Queued in afterCommit, which runs before ChangeTracker marks the
+    // transaction's versions finished (afterCompletion); that is what makes
+    // the committed version a safe event id
+    private void afterCommit(Long userId, EventSource source) {
+        afterCommit(() -> {
+            Set<Subscriber> userSubscribers = subscribers.get(userId);
+            if (userSubscribers == null || userSubscribers.isEmpty()) {
+                return;
+            }
+            // Built after the flush, so timestamps are the stored ones; build()
+            // is not repeatable, so it is called once for every subscriber
+            Set<DataWithMediaType> event = source.build()
+                    .id(String.valueOf(changeTracker.committedVersion()))
+                    .build();
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.offer(event);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private List<Set<DataWithMediaType>> initialEvents(Long userId, Long since, long upTo) {
+        String cursor = String.valueOf(upTo);
+        List<Set<DataWithMediaType>> events = new ArrayList<>();
+
+        if (since != null && since < upTo) {
+            long from = since + 1;
+            long changes = noteRepository.countByOwnerIdAndChangeVersionBetween(userId, from, upTo)
+                    + tombstoneRepository.countByOwnerIdAndChangeVersionBetween(userId, from, upTo);
+            if (changes > replayLimit) {
+                events.add(event("resync", Map.of("since", String.valueOf(since))).id(cursor).build());
+                return events;
+            }
+
+            // Replayed changes do not say what kind they were; "updated" covers them all
+            for (Folder folder : folderRepository.findByOwnerIdAndChangeVersionBetween(userId, from, upTo)) {
+                events.add(event("folder.updated", summary(folder)).build());
+            }
+            for (Note note : noteRepository.findByOwnerIdAndChangeVersionBetween(userId, from, upTo)) {
+                events.add(event("note.updated", summary(note)).build());
+            }
+            for (Tombstone tombstone : tombstoneRepository.findByOwnerIdAndChangeVersionBetween(userId, from, upTo)) {
+                String type = tombstone.getEntityType() == Tombstone.EntityType.NOTE ? "note.deleted" : "folder.deleted";
+                events.add(event(type, Map.of("id", tombstone.getEntityId())).build());
+            }
+        }
+
+        // Gives a fresh stream a cursor, and ends a replay at the version it reached
+        events.add(event("ready", Map.of("cursor", cursor)).id(cursor).build());
+        return events;
+    }
+
+    private static Long parseCursor(String lastEventId) {
+        if (lastEventId == null || lastEventId.isEmpty()) {
+            return null;
+        }
+        try {
+            long cursor = Long.parseLong(lastEventId);
+            return cursor >= 0 ? cursor : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(String name, Object data) {
+        return SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+    }
+
+    // The list fields only; the body is fetched when the note is opened
+    private static NoteSummaryResponse summary(Note note) {
+        return new NoteSummaryResponse(note.getId(), note.getTitle(), null, note.getIsFavorite(),
+                note.getFolder() != null ? note.getFolder().getId() : null, note.getUpdatedAt());
+    }
+
+    private static FolderResponse summary(Folder folder) {
+        return new FolderResponse(folder.getId(), folder.getName(), folder.getCreatedAt());
+    }
+
+    // Events wait here until a sender thread writes them; at most one sender
+    // works on a subscriber at a time, which keeps its events in order
+    private final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Deque<Set<DataWithMediaType>> pending = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private volatile boolean replaying = true;
+        private volatile boolean closed;
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(Set<DataWithMediaType> event) {
+            if (closed) {
+                return;
+            }
+            // It reconnects with its Last-Event-ID and catches up from the database
+            if (size.incrementAndGet() > bufferSize) {
+                dropped.increment();
+                close();
+                return;
+            }
+            pending.addLast(event);
+            schedule();
+        }
+
+        // Live events queued during the replay go after it
+        void resume(List<Set<DataWithMediaType>> initial) {
+            for (int i = initial.size() - 1; i >= 0; i--) {
+                pending.addFirst(initial.get(i));
+            }
+            size.addAndGet(initial.size());
+            replaying = false;
+            schedule();
+        }
+
+        void close() {
+            closed = true;
+            remove();
+            emitter.complete();
+        }
+
+        void remove() {
+            if (removed.compareAndSet(false, true)) {
+                subscribers.computeIfPresent(userId, (id, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+                subscriberCount.decrementAndGet();
+            }
+        }
+
+        private void schedule() {
+            if (!replaying && !closed && sending.compareAndSet(false, true)) {
+                sender.execute(this::send);
+            }
+        }
+
+        private void send() {
+            try {
+                Set<DataWithMediaType> event;
+                while (!closed && (event = pending.pollFirst()) != null) {
+                    size.decrementAndGet();
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client is gone; the container reports it through onError
+                closed = true;
+                remove();
+            } finally {
+                sending.set(false);
+            }
+            if (!pending.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
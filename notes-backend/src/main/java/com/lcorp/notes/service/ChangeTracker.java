@@ -0,0 +1,208 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.event.NotesBatchedEvent;
+import com.lcorp.notes.event.NotesImportedEvent;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.Tombstone;
+import com.lcorp.notes.repository.TombstoneRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Gives every note and folder change a version from one global, increasing
+// sequence and records deletes as tombstones, so clients can ask for
+// "everything after version N". Versions are handed out in memory (seeded
+// from the database on first use) from inside the writing transaction.
+//
+// Tombstones older than notes.sync.tombstone-retention are pruned. Each
+// user's highest pruned version is kept in users.pruned_version, and a sync
+// from a cursor below it gets a full snapshot instead of a delta.
+@Service
+public class ChangeTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeTracker.class);
+
+    private final TombstoneRepository tombstoneRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final DatabaseWriter databaseWriter;
+    private final Duration tombstoneRetention;
+    private final EntityManager entityManager;
+
+    // Versions handed to transactions that have not finished yet. A reader may
+    // only be told about versions below the oldest of these: a transaction
+    // holding version 10 can commit after one holding 11, and a client that
+    // had already moved past 11 would never see 10.
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+    private long lastVersion = -1;
+
+    public ChangeTracker(TombstoneRepository tombstoneRepository,
+                         JdbcTemplate jdbcTemplate,
+                         Shards shards,
+                         DatabaseWriter databaseWriter,
+                         @Value("${notes.sync.tombstone-retention}") Duration tombstoneRetention,
+                         EntityManager entityManager) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.databaseWriter = databaseWriter;
+        this.tombstoneRetention = tombstoneRetention;
+        this.entityManager = entityManager;
+    }
+
+    private static final String TOMBSTONE_SQL =
+            "INSERT INTO tombstones(id, entity_type, entity_id, owner_id, change_version, deleted_at) " +
+            "SELECT coalesce(max(id), 0) + 1, ?, ?, ?, ?, ? FROM tombstones";
+
+    @EventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (event.getType() == NoteChangedEvent.Type.DELETED) {
+            if (event.isBatched()) {
+                return;
+            }
+            tombstone(Tombstone.EntityType.NOTE, event.getNote().getId(), event.getOwnerId(), nextVersion());
+        } else {
+            event.getNote().setChangeVersion(nextVersion());
+        }
+    }
+
+    @EventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        if (event.getType() != FolderChangedEvent.Type.DELETED) {
+            event.getFolder().setChangeVersion(nextVersion());
+            return;
+        }
+
+        // Published before the folder's notes are deleted, so they are still
+        // there to be tombstoned in one statement. The statement bypasses
+        // Hibernate, so moves made earlier in the transaction are flushed first.
+        entityManager.flush();
+        long version = nextVersion();
+        jdbcTemplate.update(
+                "INSERT INTO tombstones(id, entity_type, entity_id, owner_id, change_version, deleted_at) " +
+                "SELECT (SELECT coalesce(max(id), 0) FROM tombstones) + row_number() OVER (ORDER BY id), ?, id, ?, ?, ? " +
+                "FROM notes WHERE folder_id = ?",
+                Tombstone.EntityType.NOTE.name(), event.getOwnerId(), version, now(), event.getFolder().getId());
+        tombstone(Tombstone.EntityType.FOLDER, event.getFolder().getId(), event.getOwnerId(), version);
+    }
+
+    // The batch's deletes share one version and go in as one JDBC batch
+    @EventListener
+    public void onNotesBatched(NotesBatchedEvent event) {
+        if (event.getDeletedIds().isEmpty()) {
+            return;
+        }
+        long version = nextVersion();
+        Timestamp now = now();
+        jdbcTemplate.batchUpdate(TOMBSTONE_SQL, event.getDeletedIds().stream()
+                .map(noteId -> new Object[]{
+                        Tombstone.EntityType.NOTE.name(), noteId, event.getOwnerId(), version, now})
+                .toList());
+    }
+
+    // A whole import chunk shares one version; it is committed as one anyway
+    @EventListener
+    public void onNotesImported(NotesImportedEvent event) {
+        long version = nextVersion();
+        for (Folder folder : event.getFolders()) {
+            folder.setChangeVersion(version);
+        }
+        for (Note note : event.getNotes()) {
+            note.setChangeVersion(version);
+        }
+    }
+
+    @EventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        tombstoneRepository.deleteByOwnerId(event.getUserId());
+    }
+
+    // Highest version whose transaction, and every one before it, has finished
+    public synchronized long committedVersion() {
+        seed();
+        return inFlight.isEmpty() ? lastVersion : inFlight.first() - 1;
+    }
+
+    @Scheduled(initialDelayString = "${notes.sync.pruning-interval}",
+               fixedDelayString = "${notes.sync.pruning-interval}")
+    public void pruneTombstones() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - tombstoneRetention.toMillis());
+        for (int shard = 0; shard < shards.count(); shard++) {
+            int pruned;
+            try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                pruned = databaseWriter.write(() -> {
+                    jdbcTemplate.update(
+                            "UPDATE users SET pruned_version = max(coalesce(pruned_version, 0), " +
+                            "(SELECT max(change_version) FROM tombstones t WHERE t.owner_id = users.id AND t.deleted_at < ?)) " +
+                            "WHERE id IN (SELECT owner_id FROM tombstones WHERE deleted_at < ?)",
+                            cutoff, cutoff);
+                    return jdbcTemplate.update("DELETE FROM tombstones WHERE deleted_at < ?", cutoff);
+                });
+            }
+            if (pruned > 0) {
+                log.debug("Pruned {} tombstones on shard {}", pruned, shard);
+            }
+        }
+    }
+
+    // Tombstones are only ever inserted with SQL, which also assigns their ids,
+    // so set-based inserts cannot collide with ids handed out by Hibernate
+    private void tombstone(Tombstone.EntityType type, Long entityId, Long ownerId, long version) {
+        jdbcTemplate.update(TOMBSTONE_SQL, type.name(), entityId, ownerId, version, now());
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    private synchronized long nextVersion() {
+        seed();
+        long version = ++lastVersion;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            inFlight.add(version);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    finished(version);
+                }
+            });
+        }
+
+        return version;
+    }
+
+    private synchronized void finished(long version) {
+        inFlight.remove(version);
+    }
+
+    // The sequence spans all shards, so a user moved to another shard keeps
+    // versions their clients have already seen below the new ones
+    private void seed() {
+        if (lastVersion < 0) {
+            lastVersion = shards.max(
+                    "SELECT max(v) FROM (" +
+                    "SELECT max(change_version) AS v FROM notes UNION ALL " +
+                    "SELECT max(change_version) FROM folders UNION ALL " +
+                    "SELECT max(change_version) FROM tombstones)");
+        }
+    }
+}
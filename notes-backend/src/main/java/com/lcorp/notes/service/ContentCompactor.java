@@ -0,0 +1,136 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.model.NoteContentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// Compresses bodies stored before notes.storage.compression was enabled. Only
+// the storage changes, so no change events are published.
+@Service
+public class ContentCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentCompactor.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseWriter databaseWriter;
+    private final Shards shards;
+    private final boolean enabled;
+    private final int thresholdBytes;
+    private final int batchSize;
+
+    private final long[] lastId;
+    private final boolean[] done;
+    private long compacted;
+    private long savedBytes;
+
+    public ContentCompactor(JdbcTemplate jdbcTemplate,
+                            DatabaseWriter databaseWriter,
+                            Shards shards,
+                            @Value("${notes.storage.compression.enabled}") boolean enabled,
+                            @Value("${notes.storage.compression.threshold-bytes}") int thresholdBytes,
+                            @Value("${notes.storage.compression.migrate-batch}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseWriter = databaseWriter;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.thresholdBytes = thresholdBytes;
+        this.batchSize = batchSize;
+        this.lastId = new long[shards.count()];
+        this.done = new boolean[shards.count()];
+
+        NoteContentCodec.configure(enabled, thresholdBytes);
+    }
+
+    @Scheduled(initialDelayString = "${notes.storage.compression.migrate-interval}",
+               fixedDelayString = "${notes.storage.compression.migrate-interval}")
+    public void migrate() {
+        if (!enabled || allDone()) {
+            return;
+        }
+
+        for (int shard = 0; shard < shards.count(); shard++) {
+            if (done[shard]) {
+                continue;
+            }
+
+            long afterId = lastId[shard];
+            Pass pass;
+            try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                pass = databaseWriter.write(() -> compactBatch(afterId));
+            }
+            lastId[shard] = pass.lastId();
+            compacted += pass.packed();
+            savedBytes += pass.savedBytes();
+
+            if (pass.seen() < batchSize) {
+                done[shard] = true;
+                if (shards.count() > 1) {
+                    log.info("Note content compression finished on shard {}", shard);
+                }
+            }
+        }
+
+        if (allDone()) {
+            log.info("Note content compression finished: {} notes packed, {} bytes saved", compacted, savedBytes);
+        }
+    }
+
+    private boolean allDone() {
+        for (boolean shardDone : done) {
+            if (!shardDone) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Fewer rows seen than a full batch means the end of the table
+    private record Pass(int seen, long lastId, int packed, long savedBytes) {
+    }
+
+    private Pass compactBatch(long afterId) {
+        long lastSeen = afterId;
+        int packedRows = 0;
+        long saved = 0;
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, content FROM notes " +
+                "WHERE id > ? AND content_packed IS NULL AND length(CAST(content AS BLOB)) >= ? " +
+                "ORDER BY id LIMIT ?",
+                afterId, thresholdBytes, batchSize);
+
+        for (Map<String, Object> row : rows) {
+            long id = ((Number) row.get("id")).longValue();
+            String content = (String) row.get("content");
+            lastSeen = id;
+
+            byte[] packed = NoteContentCodec.pack(content);
+            if (packed == null) {
+                continue;
+            }
+
+            int length = content.getBytes(StandardCharsets.UTF_8).length;
+            // Only if the note was not edited since it was read
+            int updated = jdbcTemplate.update(
+                    "UPDATE notes SET content = '', content_packed = ?, content_length = ? " +
+                    "WHERE id = ? AND content_packed IS NULL AND content = ?",
+                    packed, length, id, content);
+            if (updated == 1) {
+                packedRows++;
+                saved += length - packed.length;
+            }
+        }
+
+        return new Pass(rows.size(), lastSeen, packedRows, saved);
+    }
+}
@@ -0,0 +1,127 @@
+package com.lcorp.notes.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.event.NotesImportedEvent;
+import com.lcorp.notes.event.ProfileChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// A per-user counter bumped by every write to that user's notes, folders or
+// profile, used as the ETag of their list and profile responses. Current
+// values are cached, so answering a conditional GET with 304 does not touch
+// the database at all; a bump drops the cached value once it has committed.
+@Service
+public class DataVersions {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final LoadingCache<Long, Long> versions;
+
+    public DataVersions(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${notes.etag.cache-max-size}") long maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build(this::load);
+    }
+
+    public long current(Long userId) {
+        return versions.get(userId);
+    }
+
+    // Strong validator: the same user and version always serialize to the same body
+    public String etag(Long userId) {
+        return "\"" + userId + "-" + current(userId) + "\"";
+    }
+
+    @EventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        bump(event.getOwnerId());
+    }
+
+    @EventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        bump(event.getOwnerId());
+    }
+
+    @EventListener
+    public void onNotesImported(NotesImportedEvent event) {
+        bump(event.getOwnerId());
+    }
+
+    @EventListener
+    public void onProfileChanged(ProfileChangedEvent event) {
+        bump(event.getUserId());
+    }
+
+    @EventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        afterCommit(() -> versions.invalidate(event.getUserId()));
+    }
+
+    private Long load(Long userId) {
+        List<Long> rows = readOnlyTransaction.execute(status -> jdbcTemplate.queryForList(
+                "SELECT coalesce(data_version, 0) FROM users WHERE id = ?", Long.class, userId));
+        return rows == null || rows.isEmpty() ? 0L : rows.get(0);
+    }
+
+    // Once per user per transaction, however many notes a batch touches
+    @SuppressWarnings("unchecked")
+    private void bump(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            jdbcTemplate.update("UPDATE users SET data_version = coalesce(data_version, 0) + 1 WHERE id = ?", userId);
+            versions.invalidate(userId);
+            return;
+        }
+
+        Set<Long> bumped = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (bumped == null) {
+            Set<Long> users = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, users);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DataVersions.this);
+                    if (status == STATUS_COMMITTED) {
+                        versions.invalidateAll(users);
+                    }
+                }
+            });
+            bumped = users;
+        }
+
+        if (bumped.add(userId)) {
+            jdbcTemplate.update("UPDATE users SET data_version = coalesce(data_version, 0) + 1 WHERE id = ?", userId);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
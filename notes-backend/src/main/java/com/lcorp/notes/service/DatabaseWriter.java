@@ -0,0 +1,239 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Runs every write as one transaction. In WAL mode each shard's writes go to
+// its one writer thread, which commits everything queued so far together.
+@Service
+public class DatabaseWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseWriter.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean groupCommit;
+    private final int maxBatchSize;
+    private final List<BlockingQueue<Job<?>>> queues = new ArrayList<>();
+
+    private final Timer queueWait;
+    private final Timer commitTime;
+    private final DistributionSummary batchSize;
+    private final Counter retries;
+    private final Counter busy;
+
+    private volatile List<Thread> writerThreads = List.of();
+    private volatile boolean running;
+
+    public DatabaseWriter(PlatformTransactionManager transactionManager,
+                          @Value("${notes.storage.mode}") String storageMode,
+                          @Value("${notes.storage.group-commit.max-batch}") int maxBatchSize,
+                          @Value("${notes.storage.group-commit.queue-capacity}") int queueCapacity,
+                          Shards shards,
+                          MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.groupCommit = "wal".equals(storageMode);
+        this.maxBatchSize = maxBatchSize;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            queues.add(new LinkedBlockingQueue<>(queueCapacity));
+        }
+
+        Gauge.builder("notes.db.write.queue", queues, all -> all.stream().mapToInt(BlockingQueue::size).sum())
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("notes.db.write.wait")
+                .description("Time a write spent queued for the writer thread")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitTime = Timer.builder("notes.db.write.commit")
+                .description("Time to run and commit one write transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("notes.db.write.batch")
+                .description("Writes sharing one group commit")
+                .register(meterRegistry);
+        this.retries = Counter.builder("notes.db.write.retries")
+                .description("Writes retried on their own after their group commit failed")
+                .register(meterRegistry);
+        this.busy = Counter.builder("notes.db.busy")
+                .description("Writes that failed with SQLITE_BUSY/LOCKED after the busy timeout ran out")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (groupCommit) {
+            running = true;
+            List<Thread> threads = new ArrayList<>();
+            for (int shard = 0; shard < queues.size(); shard++) {
+                int writerShard = shard;
+                threads.add(new Thread(() -> drain(writerShard),
+                        queues.size() > 1 ? "sqlite-writer-" + shard : "sqlite-writer"));
+            }
+            writerThreads = List.copyOf(threads);
+            writerThreads.forEach(Thread::start);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread writerThread : writerThreads) {
+            writerThread.interrupt();
+        }
+        for (Thread writerThread : writerThreads) {
+            writerThread.join();
+        }
+        for (BlockingQueue<Job<?>> queue : queues) {
+            for (Job<?> job; (job = queue.poll()) != null; ) {
+                job.result.completeExceptionally(stopped());
+            }
+        }
+    }
+
+    public <T> T write(Supplier<T> work) {
+        if (writerThreads.contains(Thread.currentThread())) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+        if (!groupCommit) {
+            try {
+                return commitTime.record(() -> transactionTemplate.execute(status -> work.get()));
+            } catch (RuntimeException e) {
+                countBusy(e);
+                throw e;
+            }
+        }
+
+        if (!running) {
+            throw stopped();
+        }
+        Job<T> job = new Job<>(work);
+        BlockingQueue<Job<?>> queue = queues.get(ShardContext.current());
+        try {
+            queue.put(job);
+            // Queued after the writer's last look at the queue: nobody will run it
+            if (!running && queue.remove(job)) {
+                throw stopped();
+            }
+            return job.result.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the database writer", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void drain(int shard) {
+        BlockingQueue<Job<?>> queue = queues.get(shard);
+        List<Job<?>> batch = new ArrayList<>(maxBatchSize);
+        try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+            while (running || !queue.isEmpty()) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    if (queue.isEmpty()) {
+                        continue;
+                    }
+                }
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Job<?>> batch) {
+        long started = System.nanoTime();
+        for (Job<?> job : batch) {
+            queueWait.record(started - job.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.size());
+
+        List<Object> results;
+        try {
+            results = commitTime.record(() -> transactionTemplate.execute(status -> {
+                List<Object> values = new ArrayList<>(batch.size());
+                for (Job<?> job : batch) {
+                    values.add(job.work.get());
+                }
+                return values;
+            }));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                countBusy(e);
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // The whole group was rolled back; retry each job on its own
+            log.debug("Group commit of {} writes failed, retrying individually", batch.size(), e);
+            retries.increment(batch.size());
+            for (Job<?> job : batch) {
+                job.enqueuedAt = System.nanoTime();
+                commit(List.of(job));
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results.get(i));
+        }
+    }
+
+    private static IllegalStateException stopped() {
+        return new IllegalStateException("The database writer has stopped");
+    }
+
+    private void countBusy(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLiteException sqlite) {
+                // Extended codes (e.g. SQLITE_BUSY_SNAPSHOT) keep the primary code in the low byte
+                int primary = sqlite.getResultCode().code & 0xff;
+                if (primary == SQLiteErrorCode.SQLITE_BUSY.code || primary == SQLiteErrorCode.SQLITE_LOCKED.code) {
+                    busy.increment();
+                }
+                return;
+            }
+        }
+    }
+
+    private static class Job<T> {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private long enqueuedAt = System.nanoTime();
+
+        Job(Supplier<T> work) {
+            this.work = work;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object value) {
+            result.complete((T) value);
+        }
+    }
+}
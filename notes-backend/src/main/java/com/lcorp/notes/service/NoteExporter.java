@@ -0,0 +1,180 @@
+package com.lcorp.notes.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Writes a user's notes straight to an output stream. Notes are read in id
+// order, a chunk per short read-only transaction, and each one is detached
+// once written, so memory stays flat however many notes there are, and no
+// transaction stays open long enough to hold up SQLite writers.
+@Service
+public class NoteExporter {
+
+    private static final Pattern UNSAFE_NAME = Pattern.compile("[\\\\/:*?\"<>|\\p{Cntrl}]+");
+    private static final int MAX_NAME_LENGTH = 80;
+
+    private final NoteRepository noteRepository;
+    private final FolderRepository folderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public NoteExporter(NoteRepository noteRepository,
+                        FolderRepository folderRepository,
+                        EntityManager entityManager,
+                        PlatformTransactionManager transactionManager,
+                        ObjectMapper objectMapper,
+                        @Value("${notes.export.chunk-size}") int chunkSize) {
+        this.noteRepository = noteRepository;
+        this.folderRepository = folderRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    // One JSON object per line: all folders first, then every note
+    public void writeNdjson(Long userId, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+
+        try {
+            for (Folder folder : folderRepository.findByOwnerIdOrderByCreatedAtDesc(userId)) {
+                json.writeStartObject();
+                json.writeStringField("type", "folder");
+                json.writeNumberField("id", folder.getId());
+                json.writeStringField("name", folder.getName());
+                json.writeStringField("createdAt", String.valueOf(folder.getCreatedAt()));
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+
+            forEachNote(userId, note -> {
+                try {
+                    json.writeStartObject();
+                    json.writeStringField("type", "note");
+                    json.writeNumberField("id", note.getId());
+                    json.writeStringField("title", note.getTitle());
+                    json.writeStringField("content", note.getContent());
+                    json.writeBooleanField("isFavorite", note.getIsFavorite());
+                    if (note.getFolder() != null) {
+                        json.writeNumberField("folderId", note.getFolder().getId());
+                    }
+                    json.writeStringField("createdAt", String.valueOf(note.getCreatedAt()));
+                    json.writeStringField("updatedAt", String.valueOf(note.getUpdatedAt()));
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            json.flush();
+        }
+    }
+
+    // A Markdown file per note, inside a directory per folder
+    public void writeZip(Long userId, OutputStream out) throws IOException {
+        Map<Long, String> directories = new HashMap<>();
+        Set<String> taken = new HashSet<>();
+        for (Folder folder : folderRepository.findByOwnerIdOrderByCreatedAtDesc(userId)) {
+            String name = safeName(folder.getName(), "Folder");
+            String unique = name;
+            for (int i = 2; !taken.add(unique.toLowerCase()); i++) {
+                unique = name + " (" + i + ")";
+            }
+            directories.put(folder.getId(), unique + "/");
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        for (String directory : directories.values()) {
+            zip.putNextEntry(new ZipEntry(directory));
+            zip.closeEntry();
+        }
+
+        forEachNote(userId, note -> {
+            String directory = note.getFolder() != null ? directories.getOrDefault(note.getFolder().getId(), "") : "";
+            // The id keeps names unique without remembering every name written
+            String file = directory + safeName(note.getTitle(), "Untitled") + " (" + note.getId() + ").md";
+
+            try {
+                zip.putNextEntry(new ZipEntry(file));
+                zip.write(("# " + note.getTitle() + "\n\n").getBytes(StandardCharsets.UTF_8));
+                zip.write(note.getContent().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        zip.finish();
+    }
+
+    private void forEachNote(Long userId, Consumer<Note> action) throws IOException {
+        long afterId = 0;
+        while (true) {
+            long start = afterId;
+            Long last;
+            try {
+                last = readOnlyTransaction.execute(status -> {
+                    Long lastId = null;
+                    try (Stream<Note> notes = noteRepository.streamByOwnerIdAfter(userId, start, Limit.of(chunkSize))) {
+                        for (Note note : (Iterable<Note>) notes::iterator) {
+                            action.accept(note);
+                            lastId = note.getId();
+                            entityManager.detach(note);
+                        }
+                    }
+                    return lastId;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            if (last == null) {
+                return;
+            }
+            afterId = last;
+        }
+    }
+
+    private static String safeName(String name, String fallback) {
+        String safe = UNSAFE_NAME.matcher(name == null ? "" : name).replaceAll("_").trim();
+        while (safe.startsWith(".")) {
+            safe = safe.substring(1);
+        }
+        if (safe.length() > MAX_NAME_LENGTH) {
+            safe = safe.substring(0, MAX_NAME_LENGTH).trim();
+        }
+        return safe.isEmpty() ? fallback : safe;
+    }
+}
@@ -0,0 +1,376 @@
+package com.lcorp.notes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.NotesImportedEvent;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.ImportJob;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.User;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.ImportJobRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import com.lcorp.notes.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Creates folders and notes from an uploaded NDJSON file (the export format)
+// or a ZIP of Markdown files, reading the upload as a stream. Records are
+// committed a chunk per write job, together with the job's position, so an
+// interrupted upload can be sent again and resumes after the last chunk.
+@Service
+public class NoteImporter {
+
+    public static final List<String> FORMATS = List.of("ndjson", "zip");
+
+    // Caps a chunk by size as well as count when notes are large
+    private static final int MAX_CHUNK_CHARS = 8 * 1024 * 1024;
+    private static final int MAX_NAME_LENGTH = 200;
+    private static final Pattern EXPORTED_ID_SUFFIX = Pattern.compile("\\s*\\(\\d+\\)$");
+
+    private final ImportJobRepository importJobRepository;
+    private final NoteRepository noteRepository;
+    private final FolderRepository folderRepository;
+    private final UserRepository userRepository;
+    private final DatabaseWriter databaseWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public NoteImporter(ImportJobRepository importJobRepository,
+                        NoteRepository noteRepository,
+                        FolderRepository folderRepository,
+                        UserRepository userRepository,
+                        DatabaseWriter databaseWriter,
+                        ApplicationEventPublisher eventPublisher,
+                        ObjectMapper objectMapper,
+                        @Value("${notes.import.chunk-size}") int chunkSize) {
+        this.importJobRepository = importJobRepository;
+        this.noteRepository = noteRepository;
+        this.folderRepository = folderRepository;
+        this.userRepository = userRepository;
+        this.databaseWriter = databaseWriter;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public static class InvalidImportException extends RuntimeException {
+        public InvalidImportException(String message) {
+            super(message);
+        }
+    }
+
+    public static class ImportRunningException extends RuntimeException {
+        public ImportRunningException() {
+            super("This import is already running");
+        }
+    }
+
+    public ImportJob createJob(Long userId, String format) {
+        return databaseWriter.write(() -> {
+            ImportJob job = new ImportJob();
+            job.setOwnerId(userId);
+            job.setFormat(format);
+            job.setStatus(ImportJob.Status.RUNNING);
+            return importJobRepository.save(job);
+        });
+    }
+
+    public ImportJob run(ImportJob job, InputStream upload) throws IOException {
+        Long jobId = job.getId();
+        if (!runningJobs.add(jobId)) {
+            throw new ImportRunningException();
+        }
+
+        try {
+            RecordReader reader = job.getFormat().equals("zip")
+                    ? new ZipReader(upload)
+                    : new NdjsonReader(upload);
+
+            long skip = job.getPosition();
+            long position = 0;
+            int chunkChars = 0;
+            List<Item> chunk = new ArrayList<>();
+
+            Item item;
+            while ((item = reader.next()) != null) {
+                position++;
+                if (position <= skip || item instanceof Skipped) {
+                    continue;
+                }
+
+                chunk.add(item);
+                if (item instanceof NoteItem note) {
+                    chunkChars += note.content().length();
+                }
+
+                if (chunk.size() >= chunkSize || chunkChars >= MAX_CHUNK_CHARS) {
+                    commitChunk(job, chunk, position, false);
+                    chunk.clear();
+                    chunkChars = 0;
+                }
+            }
+
+            return commitChunk(job, chunk, Math.max(position, skip), true);
+        } catch (InvalidImportException e) {
+            fail(jobId, e.getMessage());
+            throw e;
+        } catch (IOException e) {
+            fail(jobId, "Upload interrupted; send the same file again to resume");
+            throw e;
+        } finally {
+            runningJobs.remove(jobId);
+        }
+    }
+
+    @EventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        importJobRepository.deleteByOwnerId(event.getUserId());
+    }
+
+    private ImportJob commitChunk(ImportJob current, List<Item> chunk, long position, boolean last) {
+        Long userId = current.getOwnerId();
+        List<Item> items = List.copyOf(chunk);
+
+        return databaseWriter.write(() -> {
+            ImportJob job = importJobRepository.findById(current.getId()).orElseThrow();
+            Map<String, Long> folderIds = readFolderMap(job.getFolderMap());
+            User owner = userRepository.getReferenceById(userId);
+
+            List<Folder> folders = new ArrayList<>();
+            List<Note> notes = new ArrayList<>();
+            Map<Long, Folder> created = new HashMap<>();
+
+            for (Item item : items) {
+                if (item instanceof FolderItem folderItem) {
+                    if (!folderIds.containsKey(folderItem.key())) {
+                        Folder folder = createFolder(owner, folderItem.name());
+                        folderIds.put(folderItem.key(), folder.getId());
+                        created.put(folder.getId(), folder);
+                        folders.add(folder);
+                    }
+                } else if (item instanceof NoteItem noteItem) {
+                    Long folderId = noteItem.folderKey() != null ? folderIds.get(noteItem.folderKey()) : null;
+                    if (folderId == null && noteItem.folderName() != null) {
+                        Folder folder = createFolder(owner, noteItem.folderName());
+                        folderIds.put(noteItem.folderKey(), folder.getId());
+                        created.put(folder.getId(), folder);
+                        folders.add(folder);
+                        folderId = folder.getId();
+                    }
+
+                    Note note = new Note();
+                    note.setTitle(noteItem.title());
+                    note.setContent(noteItem.content());
+                    note.setIsFavorite(noteItem.favorite());
+                    note.setOwner(owner);
+                    if (folderId != null) {
+                        Folder folder = created.get(folderId);
+                        note.setFolder(folder != null ? folder : folderRepository.getReferenceById(folderId));
+                    }
+                    notes.add(noteRepository.save(note));
+                }
+            }
+
+            if (!folders.isEmpty() || !notes.isEmpty()) {
+                eventPublisher.publishEvent(new NotesImportedEvent(userId, folders, notes));
+            }
+
+            job.setPosition(position);
+            job.setFoldersCreated(job.getFoldersCreated() + folders.size());
+            job.setNotesCreated(job.getNotesCreated() + notes.size());
+            job.setFolderMap(writeFolderMap(folderIds));
+            if (last) {
+                job.setStatus(ImportJob.Status.COMPLETED);
+                job.setError(null);
+            }
+            return importJobRepository.save(job);
+        });
+    }
+
+    private Folder createFolder(User owner, String name) {
+        Folder folder = new Folder();
+        folder.setName(name);
+        folder.setOwner(owner);
+        return folderRepository.save(folder);
+    }
+
+    private void fail(Long jobId, String error) {
+        databaseWriter.write(() -> {
+            importJobRepository.findById(jobId).ifPresent(job -> {
+                job.setStatus(ImportJob.Status.FAILED);
+                job.setError(error.length() > 500 ? error.substring(0, 500) : error);
+                importJobRepository.save(job);
+            });
+            return null;
+        });
+    }
+
+    private Map<String, Long> readFolderMap(String json) {
+        if (json == null || json.isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<HashMap<String, Long>>() { });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt import folder map", e);
+        }
+    }
+
+    private String writeFolderMap(Map<String, Long> folderIds) {
+        try {
+            return objectMapper.writeValueAsString(folderIds);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String limit(String text, String fallback) {
+        String trimmed = text != null ? text.trim() : "";
+        if (trimmed.isEmpty()) {
+            return fallback;
+        }
+        return trimmed.length() > MAX_NAME_LENGTH ? trimmed.substring(0, MAX_NAME_LENGTH) : trimmed;
+    }
+
+    // One record of the upload. Every record counts towards the job's
+    // position, including the ones that are skipped.
+    private sealed interface Item permits FolderItem, NoteItem, Skipped {
+    }
+
+    private record FolderItem(String key, String name) implements Item {
+    }
+
+    // folderName is set when the folder should be created if the key is new
+    private record NoteItem(String title, String content, boolean favorite,
+                            String folderKey, String folderName) implements Item {
+    }
+
+    private record Skipped() implements Item {
+    }
+
+    private interface RecordReader {
+        // Null at the end of the upload
+        Item next() throws IOException;
+    }
+
+    private class NdjsonReader implements RecordReader {
+        private final BufferedReader lines;
+        private long lineNumber;
+
+        NdjsonReader(InputStream in) {
+            this.lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Item next() throws IOException {
+            String line = lines.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            if (line.isBlank()) {
+                return new Skipped();
+            }
+
+            JsonNode record;
+            try {
+                record = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new InvalidImportException("Line " + lineNumber + ": not valid JSON");
+            }
+
+            String type = record.path("type").asText("note");
+            if (type.equals("folder")) {
+                String name = limit(record.path("name").asText(null), "Imported");
+                String key = record.hasNonNull("id") ? record.get("id").asText() : name;
+                return new FolderItem(key, name);
+            }
+            if (type.equals("note")) {
+                return new NoteItem(
+                        limit(record.path("title").asText(null), "Untitled"),
+                        record.path("content").asText(""),
+                        record.path("isFavorite").asBoolean(false),
+                        record.hasNonNull("folderId") ? record.get("folderId").asText() : null,
+                        null);
+            }
+            throw new InvalidImportException("Line " + lineNumber + ": unknown type \"" + type + "\"");
+        }
+    }
+
+    // Directories become folders (nested paths are flattened into one name)
+    // and .md/.markdown/.txt files become notes. A leading "# " line is the
+    // title; otherwise the file name is.
+    private static class ZipReader implements RecordReader {
+        private final ZipInputStream zip;
+
+        ZipReader(InputStream in) {
+            this.zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Item next() throws IOException {
+            ZipEntry entry;
+            try {
+                entry = zip.getNextEntry();
+            } catch (java.util.zip.ZipException e) {
+                throw new InvalidImportException("Not a valid ZIP file: " + e.getMessage());
+            }
+            if (entry == null) {
+                return null;
+            }
+
+            String path = entry.getName().replace('\\', '/');
+            if (entry.isDirectory()) {
+                String directory = path.substring(0, path.length() - 1);
+                return directory.isEmpty() ? new Skipped() : new FolderItem(directory, limit(directory, "Imported"));
+            }
+
+            int slash = path.lastIndexOf('/');
+            String directory = slash > 0 ? path.substring(0, slash) : null;
+            String file = path.substring(slash + 1);
+            String lower = file.toLowerCase();
+            if (file.startsWith(".") || !(lower.endsWith(".md") || lower.endsWith(".markdown") || lower.endsWith(".txt"))) {
+                return new Skipped();
+            }
+
+            String text = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+            String title;
+            String content;
+            if (text.startsWith("# ")) {
+                int end = text.indexOf('\n');
+                title = (end < 0 ? text.substring(2) : text.substring(2, end)).trim();
+                content = end < 0 ? "" : text.substring(end + 1).replaceFirst("^\\r?\\n", "");
+            } else {
+                title = EXPORTED_ID_SUFFIX.matcher(file.substring(0, file.lastIndexOf('.'))).replaceFirst("");
+                content = text;
+            }
+
+            return new NoteItem(limit(title, "Untitled"), content, false,
+                    directory, directory != null ? limit(directory, "Imported") : null);
+        }
+    }
+}
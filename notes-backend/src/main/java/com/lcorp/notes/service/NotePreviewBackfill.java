@@ -0,0 +1,58 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.NoteContentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Notes written before the summary listing existed have no stored preview.
+// They get one on startup from Note.previewOf, the same as an edit would.
+@Service
+public class NotePreviewBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(NotePreviewBackfill.class);
+
+    private final Shards shards;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseWriter databaseWriter;
+
+    public NotePreviewBackfill(Shards shards, JdbcTemplate jdbcTemplate, DatabaseWriter databaseWriter) {
+        this.shards = shards;
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseWriter = databaseWriter;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            int filled;
+            try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                filled = databaseWriter.write(this::fill);
+            }
+            if (filled > 0) {
+                log.info("Stored previews for {} notes on shard {}", filled, shard);
+            }
+        }
+    }
+
+    private int fill() {
+        List<Object[]> previews = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, content, content_packed FROM notes WHERE preview IS NULL", rs -> {
+            byte[] packed = rs.getBytes("content_packed");
+            String content = packed != null ? NoteContentCodec.unpack(packed) : rs.getString("content");
+            previews.add(new Object[]{Note.previewOf(content), rs.getLong("id")});
+        });
+        if (!previews.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE notes SET preview = ? WHERE id = ? AND preview IS NULL", previews);
+        }
+        return previews.size();
+    }
+}
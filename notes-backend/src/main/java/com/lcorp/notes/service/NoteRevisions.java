@@ -0,0 +1,294 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.event.NotesBatchedEvent;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.NoteRevision;
+import com.lcorp.notes.model.RevisionCodec;
+import com.lcorp.notes.repository.NoteRepository;
+import com.lcorp.notes.repository.NoteRevisionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Revision history. When an update changes a note's title or content, the
+// state it replaces becomes the note's newest revision, stored as a reverse
+// delta from the new content (see RevisionCodec). Older revisions already are
+// deltas from the one above them, so nothing else is rewritten. A revision is
+// stored in full once checkpoint-interval deltas have piled up above the last
+// full one, which bounds how many deltas rebuilding any revision applies.
+//
+// Autosaves come every few seconds, so a state saved less than min-interval
+// after the newest revision is not kept; that revision is re-encoded against
+// the new content instead. Older revisions are thinned in the background.
+@Service
+public class NoteRevisions {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteRevisions.class);
+
+    private final NoteRevisionRepository revisionRepository;
+    private final NoteRepository noteRepository;
+    private final DatabaseWriter databaseWriter;
+    private final Shards shards;
+    private final Duration minInterval;
+    private final int checkpointInterval;
+    private final Duration keepAll;
+    private final Duration keepHourly;
+    private final Duration keepDaily;
+    private final int thinningBatch;
+
+    private final long[] lastNoteId;
+
+    public record Version(NoteRevision revision, String content) {
+    }
+
+    public NoteRevisions(NoteRevisionRepository revisionRepository,
+                         NoteRepository noteRepository,
+                         DatabaseWriter databaseWriter,
+                         Shards shards,
+                         @Value("${notes.revisions.min-interval}") Duration minInterval,
+                         @Value("${notes.revisions.checkpoint-interval}") int checkpointInterval,
+                         @Value("${notes.revisions.keep-all}") Duration keepAll,
+                         @Value("${notes.revisions.keep-hourly}") Duration keepHourly,
+                         @Value("${notes.revisions.keep-daily}") Duration keepDaily,
+                         @Value("${notes.revisions.thinning-batch}") int thinningBatch) {
+        this.revisionRepository = revisionRepository;
+        this.noteRepository = noteRepository;
+        this.databaseWriter = databaseWriter;
+        this.shards = shards;
+        this.minInterval = minInterval;
+        this.checkpointInterval = checkpointInterval;
+        this.keepAll = keepAll;
+        this.keepHourly = keepHourly;
+        this.keepDaily = keepDaily;
+        this.thinningBatch = thinningBatch;
+        this.lastNoteId = new long[shards.count()];
+    }
+
+    @EventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        Note note = event.getNote();
+        switch (event.getType()) {
+            // What the next update compares against; the entity may see several
+            // updates before its persistence context ends
+            case CREATED -> note.markSaved(LocalDateTime.now());
+            case UPDATED -> {
+                Note.Saved before = note.getSaved();
+                if (before == null || changed(before, note)) {
+                    if (before != null) {
+                        record(note, event.getOwnerId(), before);
+                    }
+                    note.markSaved(LocalDateTime.now());
+                }
+            }
+            case DELETED -> {
+                if (!event.isBatched()) {
+                    revisionRepository.deleteByNoteId(note.getId());
+                }
+            }
+            default -> {
+                // Favorites are not versioned
+            }
+        }
+    }
+
+    // One statement for every note the batch deleted
+    @EventListener
+    public void onNotesBatched(NotesBatchedEvent event) {
+        if (!event.getDeletedIds().isEmpty()) {
+            revisionRepository.deleteByNoteIdIn(event.getDeletedIds());
+        }
+    }
+
+    @EventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        if (event.getType() == FolderChangedEvent.Type.DELETED) {
+            revisionRepository.deleteByFolderId(event.getFolder().getId());
+        }
+    }
+
+    @EventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        revisionRepository.deleteByOwnerId(event.getUserId());
+    }
+
+    public List<NoteRevision> list(Long noteId) {
+        return revisionRepository.findByNoteIdOrderByRevisionDesc(noteId);
+    }
+
+    // Rebuilt from the note's current content, so read both in one transaction
+    public Optional<Version> find(Note note, int revision) {
+        List<NoteRevision> chain = revisionRepository.findChain(note.getId(), revision);
+        if (chain.isEmpty() || chain.get(chain.size() - 1).getRevision() != revision) {
+            return Optional.empty();
+        }
+
+        String text = note.getContent();
+        for (NoteRevision step : chain) {
+            text = decode(step, text);
+        }
+        return Optional.of(new Version(chain.get(chain.size() - 1), text));
+    }
+
+    private static boolean changed(Note.Saved before, Note note) {
+        if (!before.title().equals(note.getTitle())) {
+            return true;
+        }
+        if (before.contentPacked() != null && note.getContentPacked() != null) {
+            return !Arrays.equals(before.contentPacked(), note.getContentPacked());
+        }
+        return !before.text().equals(note.getContent());
+    }
+
+    private void record(Note note, Long ownerId, Note.Saved before) {
+        String newer = note.getContent();
+        String older = before.text();
+        NoteRevision newest = revisionRepository.findFirstByNoteIdOrderByRevisionDesc(note.getId()).orElse(null);
+
+        if (newest != null && Duration.between(newest.getCreatedAt(), before.updatedAt()).compareTo(minInterval) < 0) {
+            // The replaced state goes; the newest revision was a delta from it
+            if (newest.getKind() == NoteRevision.Kind.DELTA) {
+                encode(newest, newer, RevisionCodec.apply(older, newest.getData()), false);
+            }
+            return;
+        }
+
+        NoteRevision revision = new NoteRevision();
+        revision.setNoteId(note.getId());
+        revision.setOwnerId(ownerId);
+        revision.setRevision(newest != null ? newest.getRevision() + 1 : 1);
+        revision.setTitle(before.title());
+        revision.setCreatedAt(before.updatedAt());
+        encode(revision, newer, older, revisionRepository.countDeltasOnTop(note.getId()) >= checkpointInterval);
+        revisionRepository.save(revision);
+    }
+
+    // Full when asked to, or when the delta would not be smaller anyway
+    private static void encode(NoteRevision revision, String newer, String text, boolean checkpoint) {
+        byte[] full = RevisionCodec.full(text);
+        byte[] delta = checkpoint ? null : RevisionCodec.delta(newer, text);
+        if (delta == null || delta.length >= full.length) {
+            revision.setKind(NoteRevision.Kind.FULL);
+            revision.setData(full);
+        } else {
+            revision.setKind(NoteRevision.Kind.DELTA);
+            revision.setData(delta);
+        }
+        revision.setContentLength(text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static String decode(NoteRevision revision, String newer) {
+        return revision.getKind() == NoteRevision.Kind.FULL
+                ? RevisionCodec.unpackFull(revision.getData())
+                : RevisionCodec.apply(newer, revision.getData());
+    }
+
+    // Retention: every revision younger than keep-all, then the newest one per
+    // hour up to keep-hourly and per day up to keep-daily; older ones go. Each
+    // shard is walked by note id, a batch of notes per write job, and started
+    // over at the end since revisions keep ageing into the next tier.
+    @Scheduled(initialDelayString = "${notes.revisions.thinning-interval}",
+               fixedDelayString = "${notes.revisions.thinning-interval}")
+    public void thin() {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            long afterNoteId = lastNoteId[shard];
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> noteIds;
+            int removed;
+            try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                noteIds = revisionRepository.findNoteIdsWithRevisionsBefore(
+                        afterNoteId, now.minus(keepAll), Limit.of(thinningBatch));
+                removed = noteIds.isEmpty() ? 0 : databaseWriter.write(() -> {
+                    int count = 0;
+                    for (Long noteId : noteIds) {
+                        count += thin(noteId, now);
+                    }
+                    return count;
+                });
+            }
+
+            lastNoteId[shard] = noteIds.size() < thinningBatch ? 0 : noteIds.get(noteIds.size() - 1);
+            if (removed > 0) {
+                log.debug("Thinned {} revisions of {} notes on shard {}", removed, noteIds.size(), shard);
+            }
+        }
+    }
+
+    private int thin(Long noteId, LocalDateTime now) {
+        List<NoteRevision> revisions = revisionRepository.findByNoteIdOrderByRevisionDesc(noteId);
+        boolean[] keep = new boolean[revisions.size()];
+        int keeping = 0;
+        Set<LocalDateTime> buckets = new HashSet<>();
+        for (int i = 0; i < revisions.size(); i++) {
+            NoteRevision revision = revisions.get(i);
+            Duration age = Duration.between(revision.getCreatedAt(), now);
+            if (age.compareTo(keepAll) < 0) {
+                keep[i] = true;
+            } else if (age.compareTo(keepHourly) < 0) {
+                keep[i] = buckets.add(revision.getCreatedAt().truncatedTo(ChronoUnit.HOURS));
+            } else if (age.compareTo(keepDaily) < 0) {
+                keep[i] = buckets.add(revision.getCreatedAt().truncatedTo(ChronoUnit.DAYS));
+            }
+            if (keep[i]) {
+                keeping++;
+            }
+        }
+        if (keeping == revisions.size()) {
+            return 0;
+        }
+
+        Note note = noteRepository.findById(noteId).orElse(null);
+        if (note == null) {
+            revisionRepository.deleteAll(revisions);
+            return revisions.size();
+        }
+
+        // Every text first: the deltas being replaced are needed to rebuild them
+        List<String> texts = new ArrayList<>(revisions.size());
+        String text = note.getContent();
+        for (NoteRevision revision : revisions) {
+            text = decode(revision, text);
+            texts.add(text);
+        }
+
+        List<NoteRevision> kept = new ArrayList<>(keeping);
+        List<String> keptTexts = new ArrayList<>(keeping);
+        for (int i = 0; i < revisions.size(); i++) {
+            if (keep[i]) {
+                kept.add(revisions.get(i));
+                keptTexts.add(texts.get(i));
+            } else {
+                revisionRepository.delete(revisions.get(i));
+            }
+        }
+
+        // Oldest first, so checkpoints fall where record() would have put them
+        int deltas = 0;
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            String newer = i > 0 ? keptTexts.get(i - 1) : note.getContent();
+            NoteRevision revision = kept.get(i);
+            encode(revision, newer, keptTexts.get(i), deltas >= checkpointInterval);
+            deltas = revision.getKind() == NoteRevision.Kind.FULL ? 0 : deltas + 1;
+        }
+        return revisions.size() - kept.size();
+    }
+}
@@ -0,0 +1,304 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.dto.NoteSearchResult;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.event.NotesBatchedEvent;
+import com.lcorp.notes.event.NotesImportedEvent;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.NoteContentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps notes_fts (see schema.sql) in step with the notes table one row at a
+// time. Owner and folder ids are indexed as plain tokens, so scoping a query is
+// an intersection inside FTS5 instead of a filter over every user's matches.
+// The index is contentless, so matches are marked up from the notes table's
+// copy of the text (SearchHighlighter).
+@Service
+public class NoteSearchIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchIndex.class);
+
+    // Control characters cannot appear in user text we care about, so they are
+    // safe placeholders until the text has been HTML-escaped.
+    private static final String MATCH_START = "\u0002";
+    private static final String MATCH_END = "\u0003";
+
+    private static final String CREATE_SQL =
+            "CREATE VIRTUAL TABLE notes_fts USING fts5(title, content, owner_id, folder_id, " +
+            "content = '', contentless_delete = 1, tokenize = 'unicode61 remove_diacritics 2')";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notes_fts(rowid, title, content, owner_id, folder_id) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SEARCH_SQL =
+            "SELECT n.id, n.title, n.content, n.content_packed, " +
+            "n.is_favorite, n.folder_id, n.updated_at " +
+            "FROM notes_fts JOIN notes n ON n.id = notes_fts.rowid " +
+            "WHERE notes_fts MATCH ? " +
+            "ORDER BY bm25(notes_fts, 10.0, 1.0, 0.0, 0.0) " +
+            "LIMIT ?";
+
+    private final Shards shards;
+    private final JdbcTemplate jdbcTemplate;
+
+    public NoteSearchIndex(Shards shards, JdbcTemplate jdbcTemplate) {
+        this.shards = shards;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // An index from before it was contentless holds a copy of every note
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                List<String> definition = jdbcTemplate.queryForList(
+                        "SELECT sql FROM sqlite_master WHERE name = 'notes_fts'", String.class);
+                if (definition.isEmpty() || !definition.get(0).contains("contentless_delete")) {
+                    int indexed = jdbcTemplate.execute((ConnectionCallback<Integer>) NoteSearchIndex::rebuild);
+                    log.info("Rebuilt the search index of shard {} without note text ({} notes)", shard, indexed);
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (event.isBatched()) {
+            return;
+        }
+        switch (event.getType()) {
+            case CREATED, UPDATED -> index(event.getNote());
+            case DELETED -> remove(event.getNote().getId());
+            default -> {
+                // The favorite flag is not part of the index
+            }
+        }
+    }
+
+    @EventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        if (event.getType() == FolderChangedEvent.Type.DELETED) {
+            removeFolder(event.getFolder().getId());
+        }
+    }
+
+    // Two statements for the whole batch, not two per note
+    @EventListener
+    public void onNotesBatched(NotesBatchedEvent event) {
+        List<Object[]> stale = new ArrayList<>();
+        for (Long noteId : event.getDeletedIds()) {
+            stale.add(new Object[]{noteId});
+        }
+        for (Note note : event.getChanged()) {
+            stale.add(new Object[]{note.getId()});
+        }
+        if (!stale.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM notes_fts WHERE rowid = ?", stale);
+        }
+        if (!event.getChanged().isEmpty()) {
+            indexNew(event.getChanged());
+        }
+    }
+
+    @EventListener
+    public void onNotesImported(NotesImportedEvent event) {
+        indexNew(event.getNotes());
+    }
+
+    @EventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        removeOwner(event.getUserId());
+    }
+
+    public void index(Note note) {
+        remove(note.getId());
+        jdbcTemplate.update(INSERT_SQL,
+                note.getId(),
+                note.getTitle(),
+                note.getContent(),
+                String.valueOf(note.getOwner().getId()),
+                note.getFolder() != null ? String.valueOf(note.getFolder().getId()) : "");
+    }
+
+    // Notes that cannot be in the index yet, sent as one JDBC batch
+    public void indexNew(List<Note> notes) {
+        jdbcTemplate.batchUpdate(INSERT_SQL,
+                notes.stream().map(note -> new Object[]{
+                        note.getId(),
+                        note.getTitle(),
+                        note.getContent(),
+                        String.valueOf(note.getOwner().getId()),
+                        note.getFolder() != null ? String.valueOf(note.getFolder().getId()) : ""
+                }).toList());
+    }
+
+    public void remove(Long noteId) {
+        jdbcTemplate.update("DELETE FROM notes_fts WHERE rowid = ?", noteId);
+    }
+
+    public void removeFolder(Long folderId) {
+        jdbcTemplate.update(
+                "DELETE FROM notes_fts WHERE rowid IN (SELECT rowid FROM notes_fts WHERE notes_fts MATCH ?)",
+                "folder_id:" + quote(String.valueOf(folderId)));
+    }
+
+    public void removeOwner(Long ownerId) {
+        jdbcTemplate.update(
+                "DELETE FROM notes_fts WHERE rowid IN (SELECT rowid FROM notes_fts WHERE notes_fts MATCH ?)",
+                "owner_id:" + quote(String.valueOf(ownerId)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<NoteSearchResult> search(Long ownerId, Long folderId, String query, int limit) {
+        List<String> words = words(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        SearchHighlighter highlighter = new SearchHighlighter(words);
+
+        StringBuilder match = new StringBuilder("owner_id:").append(quote(String.valueOf(ownerId)));
+        if (folderId != null) {
+            match.append(" AND folder_id:").append(quote(String.valueOf(folderId)));
+        }
+        match.append(" AND {title content}: (").append(toMatchTerms(words)).append(")");
+
+        return jdbcTemplate.query(SEARCH_SQL, (rs, rowNum) -> {
+            Number folder = (Number) rs.getObject("folder_id");
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            byte[] packed = rs.getBytes("content_packed");
+            String content = packed != null ? NoteContentCodec.unpack(packed) : rs.getString("content");
+            return new NoteSearchResult(
+                    rs.getLong("id"),
+                    markup(highlighter.highlight(rs.getString("title"), MATCH_START, MATCH_END)),
+                    markup(highlighter.snippet(content, MATCH_START, MATCH_END, "…", 16)),
+                    rs.getBoolean("is_favorite"),
+                    folder != null ? folder.longValue() : null,
+                    updatedAt != null ? updatedAt.toLocalDateTime() : null);
+        }, match.toString(), limit);
+    }
+
+    private static List<String> words(String query) {
+        List<String> words = new ArrayList<>();
+        if (query != null) {
+            for (String word : query.trim().split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    // Every word becomes a quoted phrase so user input can never be parsed as
+    // FTS5 syntax; the last one is a prefix so results follow the user's typing.
+    private static String toMatchTerms(List<String> words) {
+        List<String> terms = new ArrayList<>();
+        for (String word : words) {
+            terms.add(quote(word));
+        }
+        terms.set(terms.size() - 1, terms.get(terms.size() - 1) + "*");
+        return String.join(" ", terms);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // Replaces notes_fts with an empty contentless index and indexes every note
+    public static int rebuild(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        try (Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            int indexed;
+            try {
+                statement.execute("DROP TABLE IF EXISTS notes_fts");
+                statement.execute(CREATE_SQL);
+                indexed = indexNotes(connection, "main", "1 = 1");
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+
+            // Merge the freshly written segments so the first queries are fast
+            connection.setAutoCommit(true);
+            statement.execute("INSERT INTO notes_fts(notes_fts) VALUES ('optimize')");
+            return indexed;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Indexes the notes of <schema>.notes that match where into <schema>.notes_fts,
+    // unpacking compressed bodies, which SQLite cannot inflate itself
+    public static int indexNotes(Connection connection, String schema, String where, Object... args)
+            throws SQLException {
+        String packed = hasPackedColumn(connection, schema) ? "content_packed" : "NULL";
+        int indexed = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                     "SELECT id, title, content, " + packed + ", CAST(owner_id AS TEXT), " +
+                     "COALESCE(CAST(folder_id AS TEXT), '') FROM " + schema + ".notes WHERE " + where);
+             PreparedStatement insert = connection.prepareStatement(
+                     INSERT_SQL.replace("INTO notes_fts", "INTO " + schema + ".notes_fts"))) {
+            for (int i = 0; i < args.length; i++) {
+                select.setObject(i + 1, args[i]);
+            }
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    byte[] contentPacked = rows.getBytes(4);
+                    insert.setLong(1, rows.getLong(1));
+                    insert.setString(2, rows.getString(2));
+                    insert.setString(3, contentPacked != null ? NoteContentCodec.unpack(contentPacked) : rows.getString(3));
+                    insert.setString(4, rows.getString(5));
+                    insert.setString(5, rows.getString(6));
+                    insert.addBatch();
+                    if (++indexed % 500 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        return indexed;
+    }
+
+    private static boolean hasPackedColumn(Connection connection, String schema) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM pragma_table_info('notes', ?) WHERE name = 'content_packed'")) {
+            statement.setString(1, schema);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+
+    private static String markup(String text) {
+        if (text == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(text)
+                .replace(MATCH_START, "<mark>")
+                .replace(MATCH_END, "</mark>");
+    }
+}
@@ -0,0 +1,434 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.dto.NoteResponse;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.repository.NoteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Merges PUT /api/notes/{id} updates to the same note in memory and writes
+// them later. Any other request of the owner writes their notes first (see
+// WriteBufferConfig), so nothing ever reads a note's old state.
+@Service
+public class NoteWriteBuffer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteWriteBuffer.class);
+
+    private static final int MAX_BATCH_SIZE = 200;
+
+    private final NoteRepository noteRepository;
+    private final DatabaseWriter databaseWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Shards shards;
+    private final boolean enabled;
+    private final long quietNanos;
+    private final long maxDelayNanos;
+    private final int maxNotes;
+    private final boolean acknowledgeCommitted;
+
+    // Owner id to their waiting notes by note id
+    private final Map<Long, Map<Long, Pending>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final Counter merged;
+    private final Counter written;
+    private final Counter failed;
+
+    private volatile ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
+    public NoteWriteBuffer(NoteRepository noteRepository,
+                           DatabaseWriter databaseWriter,
+                           ApplicationEventPublisher eventPublisher,
+                           Shards shards,
+                           MeterRegistry meterRegistry,
+                           @Value("${notes.write-buffer.enabled}") boolean enabled,
+                           @Value("${notes.write-buffer.quiet-period}") Duration quietPeriod,
+                           @Value("${notes.write-buffer.max-delay}") Duration maxDelay,
+                           @Value("${notes.write-buffer.max-notes}") int maxNotes,
+                           @Value("${notes.write-buffer.acknowledge}") String acknowledge) {
+        this.noteRepository = noteRepository;
+        this.databaseWriter = databaseWriter;
+        this.eventPublisher = eventPublisher;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.quietNanos = quietPeriod.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxNotes = maxNotes;
+        if (!acknowledge.equals("buffered") && !acknowledge.equals("committed")) {
+            throw new IllegalArgumentException("notes.write-buffer.acknowledge must be buffered or committed");
+        }
+        this.acknowledgeCommitted = acknowledge.equals("committed");
+
+        Gauge.builder("notes.write-buffer.notes", size, AtomicInteger::get)
+                .description("Notes with updates not written yet")
+                .register(meterRegistry);
+        this.merged = Counter.builder("notes.write-buffer.merged")
+                .description("Note updates merged into an earlier one instead of written on their own")
+                .register(meterRegistry);
+        this.written = Counter.builder("notes.write-buffer.written")
+                .description("Buffered notes written to the database")
+                .register(meterRegistry);
+        this.failed = Counter.builder("notes.write-buffer.failed")
+                .description("Buffered note writes that failed and are retried")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (enabled) {
+            long tick = Math.max(TimeUnit.MILLISECONDS.toNanos(10), Math.min(quietNanos, maxDelayNanos) / 4);
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "note-write-buffer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (!acknowledgeCommitted) {
+                flusher.scheduleWithFixedDelay(() -> flush(false), tick, tick, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Once the web server has stopped taking requests, while the beans that
+    // listen to note changes are still around to be notified
+    @Override
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+        if (size.get() > 0) {
+            log.error("{} buffered note updates could not be written before shutdown", size.get());
+        }
+        flusher = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    }
+
+    // Folder moves are rare and validated against the folder, so they are
+    // written directly
+    public boolean accepts(boolean folderChange) {
+        return enabled && !closed && !folderChange;
+    }
+
+    // Null if the note does not exist or belongs to someone else
+    public NoteResponse update(Long ownerId, Long noteId, String title, String content) {
+        while (true) {
+            Pending entry = pending.getOrDefault(ownerId, Map.of()).get(noteId);
+            if (entry == null) {
+                Note note = noteRepository.findByIdAndOwnerId(noteId, ownerId).orElse(null);
+                if (note == null) {
+                    return null;
+                }
+                entry = add(new Pending(ownerId, NoteResponse.of(note)));
+            }
+
+            NoteResponse response;
+            CompletableFuture<NoteResponse> committed;
+            synchronized (entry) {
+                if (entry.removed) {
+                    // Written and dropped meanwhile; start over from the database
+                    continue;
+                }
+                if (title != null && !title.trim().isEmpty()) {
+                    entry.note.setTitle(title.trim());
+                    entry.titleChanged = true;
+                }
+                if (content != null) {
+                    entry.note.setContent(content);
+                    entry.contentChanged = true;
+                }
+                entry.note.setUpdatedAt(LocalDateTime.now());
+                entry.note.setVersion(null);
+
+                long now = System.nanoTime();
+                if (entry.dirty) {
+                    merged.increment();
+                } else {
+                    entry.dirty = true;
+                    entry.firstUpdate = now;
+                }
+                entry.lastUpdate = now;
+                response = copy(entry.note);
+                committed = entry.committed;
+            }
+
+            if (!acknowledgeCommitted) {
+                if (size.get() > maxNotes && draining.compareAndSet(false, true)) {
+                    drain();
+                }
+                return response;
+            }
+
+            // Not by the flusher: it could not get a connection while requests
+            // waiting for it hold theirs
+            while (!committed.isDone()) {
+                write(ownerId, List.of(entry));
+            }
+            try {
+                return committed.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        ScheduledExecutorService executor = flusher;
+        try {
+            if (executor == null) {
+                throw new RejectedExecutionException();
+            }
+            executor.execute(() -> {
+                try {
+                    flush(true);
+                } finally {
+                    draining.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down, which writes everything anyway
+            draining.set(false);
+        }
+    }
+
+    // Before anything else the owner does reads or changes their notes
+    public void flush(Long ownerId) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Pending> notes = pending.get(ownerId);
+        if (notes != null && !notes.isEmpty()) {
+            write(ownerId, new ArrayList<>(notes.values()));
+        }
+    }
+
+    // Due notes, or all of them; one write job per shard and batch
+    private void flush(boolean all) {
+        long now = System.nanoTime();
+        Map<Integer, List<Pending>> byShard = new HashMap<>();
+        for (Map<Long, Pending> notes : pending.values()) {
+            for (Pending entry : notes.values()) {
+                boolean due;
+                synchronized (entry) {
+                    due = entry.dirty && (all
+                            || now - entry.lastUpdate >= quietNanos
+                            || now - entry.firstUpdate >= maxDelayNanos);
+                }
+                if (due) {
+                    byShard.computeIfAbsent(Shards.shardOf(entry.ownerId, shards.count()), shard -> new ArrayList<>())
+                            .add(entry);
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, List<Pending>> shard : byShard.entrySet()) {
+            List<Pending> entries = shard.getValue();
+            for (int from = 0; from < entries.size(); from += MAX_BATCH_SIZE) {
+                try (ShardContext.Scope scope = ShardContext.enter(shard.getKey())) {
+                    write(entries.subList(from, Math.min(from + MAX_BATCH_SIZE, entries.size())));
+                } catch (RuntimeException e) {
+                    // Logged and counted by write(); the entries are retried
+                }
+            }
+        }
+    }
+
+    private void write(Long ownerId, List<Pending> entries) {
+        try (ShardContext.Scope scope = shards.enter(ownerId)) {
+            write(entries);
+        }
+    }
+
+    // Each entry's lock is held until its write has committed, so writes of one
+    // note never overtake each other
+    private void write(List<Pending> entries) {
+        List<Pending> locked = entries.stream().sorted(Comparator.comparing(entry -> entry.note.getId())).toList();
+        locked.forEach(entry -> entry.writing.lock());
+        try {
+            List<Change> changes = new ArrayList<>(locked.size());
+            for (Pending entry : locked) {
+                synchronized (entry) {
+                    if (entry.dirty) {
+                        changes.add(new Change(entry, entry.titleChanged ? entry.note.getTitle() : null,
+                                entry.contentChanged ? entry.note.getContent() : null, entry.committed));
+                        entry.dirty = false;
+                        entry.committed = new CompletableFuture<>();
+                    }
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+
+            Map<Long, NoteResponse> saved;
+            try {
+                saved = databaseWriter.write(() -> apply(changes));
+            } catch (RuntimeException e) {
+                failed.increment(changes.size());
+                log.warn("Writing {} buffered note updates failed; retrying", changes.size(), e);
+                for (Change change : changes) {
+                    synchronized (change.entry) {
+                        change.entry.dirty = true;
+                        change.entry.firstUpdate = System.nanoTime();
+                    }
+                    change.committed.completeExceptionally(e);
+                }
+                throw e;
+            }
+
+            written.increment(changes.size());
+            for (Change change : changes) {
+                Pending entry = change.entry;
+                NoteResponse note = saved.get(entry.note.getId());
+                synchronized (entry) {
+                    if (note != null && !entry.dirty) {
+                        entry.note = note;
+                    } else if (note != null) {
+                        entry.note.setIsFavorite(note.getIsFavorite());
+                        entry.note.setFolderId(note.getFolderId());
+                    }
+                    if (note == null || !entry.dirty) {
+                        remove(entry);
+                    }
+                }
+                change.committed.complete(note != null ? copy(note) : null);
+            }
+        } finally {
+            locked.forEach(entry -> entry.writing.unlock());
+        }
+    }
+
+    // Notes deleted meanwhile are left out of the result and dropped
+    private Map<Long, NoteResponse> apply(List<Change> changes) {
+        Map<Long, Note> notes = noteRepository.findAllById(
+                        changes.stream().map(change -> change.entry.note.getId()).toList()).stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+
+        List<Note> saved = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            Note note = notes.get(change.entry.note.getId());
+            if (note == null || !note.getOwner().getId().equals(change.entry.ownerId)) {
+                continue;
+            }
+
+            boolean titleChanged = change.title != null && !change.title.equals(note.getTitle());
+            boolean contentChanged = change.content != null && !change.content.equals(note.getContent());
+            if (titleChanged || contentChanged) {
+                if (titleChanged) {
+                    note.setTitle(change.title);
+                }
+                if (contentChanged) {
+                    note.setContent(change.content);
+                }
+                note = noteRepository.save(note);
+                eventPublisher.publishEvent(new NoteChangedEvent(NoteChangedEvent.Type.UPDATED, note));
+            }
+            saved.add(note);
+        }
+        // Sets updatedAt, which the responses carry
+        noteRepository.flush();
+        return saved.stream().collect(Collectors.toMap(Note::getId, NoteResponse::of));
+    }
+
+    private Pending add(Pending entry) {
+        Pending[] result = new Pending[1];
+        pending.compute(entry.ownerId, (ownerId, notes) -> {
+            Map<Long, Pending> map = notes != null ? notes : new ConcurrentHashMap<>();
+            result[0] = map.computeIfAbsent(entry.note.getId(), id -> {
+                size.incrementAndGet();
+                return entry;
+            });
+            return map;
+        });
+        return result[0];
+    }
+
+    private void remove(Pending entry) {
+        entry.removed = true;
+        pending.computeIfPresent(entry.ownerId, (ownerId, notes) -> {
+            if (notes.remove(entry.note.getId(), entry)) {
+                size.decrementAndGet();
+            }
+            return notes.isEmpty() ? null : notes;
+        });
+    }
+
+    private static NoteResponse copy(NoteResponse note) {
+        return new NoteResponse(note.getId(), note.getTitle(), note.getContent(), note.getIsFavorite(),
+                note.getFolderId(), note.getUpdatedAt(), note.getVersion());
+    }
+
+    // One note's updates since its last write, merged. Fields other than the
+    // lock and the owner are guarded by the entry's monitor.
+    private static final class Pending {
+        final Long ownerId;
+        final ReentrantLock writing = new ReentrantLock();
+        NoteResponse note;
+        boolean titleChanged;
+        boolean contentChanged;
+        boolean dirty;
+        boolean removed;
+        long firstUpdate;
+        long lastUpdate;
+        CompletableFuture<NoteResponse> committed = new CompletableFuture<>();
+
+        Pending(Long ownerId, NoteResponse note) {
+            this.ownerId = ownerId;
+            this.note = note;
+        }
+    }
+
+    private record Change(Pending entry, String title, String content, CompletableFuture<NoteResponse> committed) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.lcorp.notes.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// highlight() and snippet() for notes_fts, which keeps no text to run them on.
+// Tokens are split and folded like the index's unicode61 tokenizer with
+// remove_diacritics; the last query token matches as a prefix.
+final class SearchHighlighter {
+
+    private final Set<String> terms = new HashSet<>();
+    private final String prefix;
+
+    private record Token(int start, int end, boolean match) {
+    }
+
+    SearchHighlighter(List<String> words) {
+        List<String> tokens = new ArrayList<>();
+        for (String word : words) {
+            for (int[] span : spans(word)) {
+                tokens.add(fold(word.substring(span[0], span[1])));
+            }
+        }
+        prefix = tokens.isEmpty() ? null : tokens.remove(tokens.size() - 1);
+        terms.addAll(tokens);
+    }
+
+    String highlight(String text, String start, String end) {
+        if (text == null) {
+            return null;
+        }
+        List<Token> tokens = tokens(text);
+        return mark(text, tokens, 0, tokens.size(), 0, text.length(), start, end);
+    }
+
+    // The window of at most size tokens with the most matches, starting just
+    // before a match, with ellipsis where text was left out
+    String snippet(String text, String start, String end, String ellipsis, int size) {
+        if (text == null) {
+            return null;
+        }
+        List<Token> tokens = tokens(text);
+        int from = 0;
+        int best = count(tokens, 0, size);
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).match()) {
+                int candidate = Math.max(0, Math.min(i - 2, tokens.size() - size));
+                int matches = count(tokens, candidate, size);
+                if (matches > best) {
+                    best = matches;
+                    from = candidate;
+                }
+            }
+        }
+        int to = Math.min(tokens.size(), from + size);
+
+        int textFrom = from == 0 ? 0 : tokens.get(from).start();
+        int textTo = to == tokens.size() ? text.length() : tokens.get(to - 1).end();
+        return (from > 0 ? ellipsis : "")
+                + mark(text, tokens, from, to, textFrom, textTo, start, end)
+                + (to < tokens.size() ? ellipsis : "");
+    }
+
+    private static int count(List<Token> tokens, int from, int size) {
+        int matches = 0;
+        for (int i = from; i < Math.min(tokens.size(), from + size); i++) {
+            if (tokens.get(i).match()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static String mark(String text, List<Token> tokens, int from, int to, int textFrom, int textTo,
+                               String start, String end) {
+        StringBuilder marked = new StringBuilder(textTo - textFrom + 16);
+        int position = textFrom;
+        for (int i = from; i < to; i++) {
+            Token token = tokens.get(i);
+            if (token.match()) {
+                marked.append(text, position, token.start())
+                        .append(start)
+                        .append(text, token.start(), token.end())
+                        .append(end);
+                position = token.end();
+            }
+        }
+        return marked.append(text, position, textTo).toString();
+    }
+
+    private List<Token> tokens(String text) {
+        List<Token> tokens = new ArrayList<>();
+        for (int[] span : spans(text)) {
+            String folded = fold(text.substring(span[0], span[1]));
+            boolean match = terms.contains(folded) || (prefix != null && folded.startsWith(prefix));
+            tokens.add(new Token(span[0], span[1], match));
+        }
+        return tokens;
+    }
+
+    private static List<int[]> spans(String text) {
+        List<int[]> spans = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (isTokenChar(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                spans.add(new int[]{start, i});
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            spans.add(new int[]{start, text.length()});
+        }
+        return spans;
+    }
+
+    private static boolean isTokenChar(int codePoint) {
+        return switch (Character.getType(codePoint)) {
+            case Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER,
+                 Character.MODIFIER_LETTER, Character.OTHER_LETTER, Character.DECIMAL_DIGIT_NUMBER,
+                 Character.LETTER_NUMBER, Character.OTHER_NUMBER, Character.PRIVATE_USE,
+                 Character.NON_SPACING_MARK, Character.COMBINING_SPACING_MARK -> true;
+            default -> false;
+        };
+    }
+
+    private static String fold(String token) {
+        return Normalizer.normalize(token, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,366 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.dto.TitleMatch;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.event.NotesImportedEvent;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Per-user prefix index over note titles and folder names for autocomplete.
+// A user's titles are loaded on first lookup, kept current by the change
+// events, and dropped again once more than max-users others are newer.
+@Service
+public class TitleIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final NoteRepository noteRepository;
+    private final FolderRepository folderRepository;
+    private final Map<Long, UserTitles> users;
+
+    public TitleIndex(NoteRepository noteRepository,
+                      FolderRepository folderRepository,
+                      @Value("${notes.autocomplete.max-users}") int maxUsers) {
+        this.noteRepository = noteRepository;
+        this.folderRepository = folderRepository;
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserTitles> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public List<TitleMatch> completeNotes(Long userId, String prefix, int limit) {
+        return titlesOf(userId).notes.complete(normalize(prefix), limit);
+    }
+
+    public List<TitleMatch> completeFolders(Long userId, String prefix, int limit) {
+        return titlesOf(userId).folders.complete(normalize(prefix), limit);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        UserTitles titles = cachedTitlesOf(event.getOwnerId());
+        if (titles == null) {
+            return;
+        }
+        Long noteId = event.getNote().getId();
+        switch (event.getType()) {
+            case CREATED, UPDATED -> titles.update(t -> t.notes = t.notes.with(noteId, event.getNote().getTitle()));
+            case DELETED -> titles.update(t -> t.notes = t.notes.without(noteId));
+            default -> {
+                // Favorites do not change titles
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFolderChanged(FolderChangedEvent event) {
+        Long ownerId = event.getOwnerId();
+        UserTitles titles = cachedTitlesOf(ownerId);
+        if (titles == null) {
+            return;
+        }
+        Long folderId = event.getFolder().getId();
+        switch (event.getType()) {
+            case CREATED, RENAMED -> titles.update(t -> t.folders = t.folders.with(folderId, event.getFolder().getName()));
+            // The folder's notes went with it and the index does not track
+            // which notes those were, so reload the user on next use
+            case DELETED -> evict(ownerId);
+        }
+    }
+
+    // Cheaper to reload once on next use than to re-sort per imported note
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotesImported(NotesImportedEvent event) {
+        evict(event.getOwnerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        evict(event.getUserId());
+    }
+
+    private UserTitles titlesOf(Long userId) {
+        UserTitles titles;
+        synchronized (users) {
+            titles = users.computeIfAbsent(userId, id -> new UserTitles());
+        }
+        titles.ensureLoaded(
+                () -> noteRepository.findTitlesByOwnerId(userId),
+                () -> folderRepository.findTitlesByOwnerId(userId));
+        return titles;
+    }
+
+    private UserTitles cachedTitlesOf(Long userId) {
+        synchronized (users) {
+            return users.get(userId);
+        }
+    }
+
+    private void evict(Long userId) {
+        synchronized (users) {
+            users.remove(userId);
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // Lookups read the volatile snapshots without locking; writers replace
+    // them under the entry's lock. A write that arrives before the first
+    // load is skipped, because the load reads the already committed row.
+    // A lock rather than a monitor because the first load queries the
+    // database, which would pin a virtual thread's carrier under synchronized.
+    private static class UserTitles {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile TitleSet notes = TitleSet.EMPTY;
+        private volatile TitleSet folders = TitleSet.EMPTY;
+        private boolean loaded;
+
+        void ensureLoaded(Supplier<List<TitleMatch>> noteTitles,
+                          Supplier<List<TitleMatch>> folderNames) {
+            lock.lock();
+            try {
+                if (!loaded) {
+                    notes = TitleSet.of(noteTitles.get());
+                    folders = TitleSet.of(folderNames.get());
+                    loaded = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void update(Consumer<UserTitles> change) {
+            lock.lock();
+            try {
+                if (loaded) {
+                    change.accept(this);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Immutable sorted arrays of normalized keys. Whole titles and the
+    // suffixes starting at each later word are kept apart so that matches on
+    // the start of a title rank first. A change copies the arrays once with
+    // the title's keys spliced in or out at binary-searched positions.
+    private static class TitleSet {
+        static final TitleSet EMPTY = new TitleSet(Map.of(), SortedKeys.EMPTY, SortedKeys.EMPTY);
+
+        private final Map<Long, String> titles;
+        private final SortedKeys starts;
+        private final SortedKeys words;
+
+        private TitleSet(Map<Long, String> titles, SortedKeys starts, SortedKeys words) {
+            this.titles = titles;
+            this.starts = starts;
+            this.words = words;
+        }
+
+        static TitleSet of(List<TitleMatch> matches) {
+            Map<Long, String> titles = new HashMap<>();
+            for (TitleMatch match : matches) {
+                titles.put(match.getId(), match.getTitle());
+            }
+
+            List<Key> starts = new ArrayList<>();
+            List<Key> words = new ArrayList<>();
+            for (Map.Entry<Long, String> entry : titles.entrySet()) {
+                keysOf(entry.getKey(), entry.getValue(), starts, words);
+            }
+            return new TitleSet(titles, SortedKeys.of(starts), SortedKeys.of(words));
+        }
+
+        TitleSet with(Long id, String title) {
+            String old = titles.get(id);
+            if (title.equals(old)) {
+                return this;
+            }
+            Map<Long, String> copy = new HashMap<>(titles);
+            copy.put(id, title);
+
+            List<Key> oldStarts = new ArrayList<>();
+            List<Key> oldWords = new ArrayList<>();
+            if (old != null) {
+                keysOf(id, old, oldStarts, oldWords);
+            }
+            List<Key> newStarts = new ArrayList<>();
+            List<Key> newWords = new ArrayList<>();
+            keysOf(id, title, newStarts, newWords);
+            return new TitleSet(copy, starts.replace(oldStarts, newStarts), words.replace(oldWords, newWords));
+        }
+
+        TitleSet without(Long id) {
+            String old = titles.get(id);
+            if (old == null) {
+                return this;
+            }
+            Map<Long, String> copy = new HashMap<>(titles);
+            copy.remove(id);
+
+            List<Key> oldStarts = new ArrayList<>();
+            List<Key> oldWords = new ArrayList<>();
+            keysOf(id, old, oldStarts, oldWords);
+            return new TitleSet(copy, starts.replace(oldStarts, new ArrayList<>()), words.replace(oldWords, new ArrayList<>()));
+        }
+
+        List<TitleMatch> complete(String prefix, int limit) {
+            Set<Long> ids = new LinkedHashSet<>();
+            starts.collect(prefix, limit, ids);
+            words.collect(prefix, limit, ids);
+
+            List<TitleMatch> matches = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                matches.add(new TitleMatch(id, titles.get(id)));
+            }
+            return matches;
+        }
+
+        private static void keysOf(long id, String title, List<Key> starts, List<Key> words) {
+            String key = normalize(title);
+            starts.add(new Key(key, id));
+            for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+                words.add(new Key(key.substring(i + 1), id));
+            }
+        }
+    }
+
+    private record Key(String text, long id) {
+        static final Comparator<Key> ORDER = Comparator.comparing(Key::text).thenComparingLong(Key::id);
+    }
+
+    // Keys ordered by text, then id, so every entry has a distinct position
+    private static class SortedKeys {
+        static final SortedKeys EMPTY = new SortedKeys(new String[0], new long[0]);
+
+        private final String[] texts;
+        private final long[] ids;
+
+        private SortedKeys(String[] texts, long[] ids) {
+            this.texts = texts;
+            this.ids = ids;
+        }
+
+        static SortedKeys of(List<Key> keys) {
+            keys.sort(Key.ORDER);
+            return new SortedKeys(
+                    keys.stream().map(Key::text).toArray(String[]::new),
+                    keys.stream().mapToLong(Key::id).toArray());
+        }
+
+        // Same contract as Arrays.binarySearch
+        private int search(String text, long id) {
+            int low = 0;
+            int high = texts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = texts[mid].compareTo(text);
+                if (cmp == 0) {
+                    cmp = Long.compare(ids[mid], id);
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        // Both lists hold a handful of keys of one title; the arrays are
+        // copied once, without re-sorting what is already in order
+        SortedKeys replace(List<Key> remove, List<Key> add) {
+            remove.sort(Key.ORDER);
+            add.sort(Key.ORDER);
+
+            int[] removeAt = new int[remove.size()];
+            int removing = 0;
+            for (Key key : remove) {
+                int i = search(key.text(), key.id());
+                if (i >= 0) {
+                    removeAt[removing++] = i;
+                }
+            }
+            int[] insertAt = new int[add.size()];
+            for (int k = 0; k < add.size(); k++) {
+                int i = search(add.get(k).text(), add.get(k).id());
+                insertAt[k] = i >= 0 ? i : -i - 1;
+            }
+
+            int size = texts.length - removing + add.size();
+            String[] newTexts = new String[size];
+            long[] newIds = new long[size];
+            int out = 0;
+            int from = 0;
+            int r = 0;
+            int a = 0;
+            while (from < texts.length || a < add.size()) {
+                int next = Math.min(
+                        r < removing ? removeAt[r] : texts.length,
+                        a < add.size() ? insertAt[a] : texts.length);
+                int run = next - from;
+                System.arraycopy(texts, from, newTexts, out, run);
+                System.arraycopy(ids, from, newIds, out, run);
+                out += run;
+                from = next;
+                if (a < add.size() && insertAt[a] == from) {
+                    newTexts[out] = add.get(a).text();
+                    newIds[out] = add.get(a).id();
+                    out++;
+                    a++;
+                } else if (r < removing && removeAt[r] == from) {
+                    from++;
+                    r++;
+                } else if (from == texts.length) {
+                    break;
+                }
+            }
+            return new SortedKeys(newTexts, newIds);
+        }
+
+        void collect(String prefix, int limit, Set<Long> out) {
+            // Before every key equal to the prefix, whatever its id
+            int i = search(prefix, Long.MIN_VALUE);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            for (; i < texts.length && out.size() < limit && texts[i].startsWith(prefix); i++) {
+                out.add(ids[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.lcorp.notes.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lcorp.notes.dto.FolderResponse;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.event.NotesImportedEvent;
+import com.lcorp.notes.event.ProfileChangedEvent;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+
+// Each user's profile and folder list, which the frontend asks for on nearly
+// every page. Entries change only after a write has committed: renames and
+// deletes are applied to a cached folder list in place, anything else drops
+// the entry and the next read loads it again. Caffeine blocks an invalidation while a load
+// for the same user is running, so a load that read old rows cannot outlive it.
+@Service
+public class UserDataCache {
+
+    private final UserRepository userRepository;
+    private final FolderRepository folderRepository;
+    private final Cache<Long, Profile> profiles;
+    private final Cache<Long, List<FolderResponse>> folders;
+
+    public record Profile(Long id, String email, String name) {
+    }
+
+    public UserDataCache(UserRepository userRepository,
+                         FolderRepository folderRepository,
+                         @Value("${notes.user-cache.max-size}") long maxSize,
+                         @Value("${notes.user-cache.ttl}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.folderRepository = folderRepository;
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.folders = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, "profiles");
+        CaffeineCacheMetrics.monitor(meterRegistry, folders, "folders");
+    }
+
+    // Null if there is no such user; that is not cached
+    public Profile profile(Long userId) {
+        return profiles.get(userId, id -> userRepository.findById(id)
+                .map(user -> new Profile(user.getId(), user.getEmail(), user.getName()))
+                .orElse(null));
+    }
+
+    // Newest first, like FolderRepository.findByOwnerIdOrderByCreatedAtDesc
+    public List<FolderResponse> folders(Long userId) {
+        return folders.get(userId, id -> folderRepository.findByOwnerIdOrderByCreatedAtDesc(id).stream()
+                .map(UserDataCache::toResponse)
+                .toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFolderChanged(FolderChangedEvent event) {
+        Long folderId = event.getFolder().getId();
+        switch (event.getType()) {
+            // A new folder's createdAt is finer than what is stored; loaded
+            // again, the list reads exactly as it would from the database
+            case CREATED -> folders.invalidate(event.getOwnerId());
+            case RENAMED -> folders.asMap().computeIfPresent(event.getOwnerId(), (userId, cached) -> cached.stream()
+                    .map(folder -> folder.getId().equals(folderId)
+                            ? new FolderResponse(folderId, event.getFolder().getName(), folder.getCreatedAt())
+                            : folder)
+                    .toList());
+            case DELETED -> folders.asMap().computeIfPresent(event.getOwnerId(), (userId, cached) -> cached.stream()
+                    .filter(folder -> !folder.getId().equals(folderId))
+                    .toList());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotesImported(NotesImportedEvent event) {
+        if (!event.getFolders().isEmpty()) {
+            folders.invalidate(event.getOwnerId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProfileChanged(ProfileChangedEvent event) {
+        profiles.invalidate(event.getUserId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        profiles.invalidate(event.getUserId());
+        folders.invalidate(event.getUserId());
+    }
+
+    private static FolderResponse toResponse(Folder folder) {
+        return new FolderResponse(folder.getId(), folder.getName(), folder.getCreatedAt());
+    }
+}
@@ -0,0 +1,178 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.ShardContext;
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.event.AccountDeletedEvent;
+import com.lcorp.notes.model.ShardedIncrementGenerator;
+import com.lcorp.notes.model.User;
+import com.lcorp.notes.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Email to user id for signing in. Also reserves ids (id_sequences), which is
+// why it is a database of its own: no shard's write transaction ever locks it.
+@Service
+public class UserDirectory implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectory.class);
+
+    private final Shards shards;
+    private final UserRepository userRepository;
+    private final DatabaseWriter databaseWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final HikariDataSource pool;
+    private final JdbcTemplate directory;
+
+    // Where the users counter starts if it has never been used
+    private volatile long firstUserId = 1;
+
+    public UserDirectory(Shards shards,
+                         UserRepository userRepository,
+                         DatabaseWriter databaseWriter,
+                         JdbcTemplate jdbcTemplate,
+                         @Value("${notes.storage.directory-url}") String url,
+                         @Value("${notes.storage.busy-timeout-ms}") int busyTimeoutMs) {
+        this.shards = shards;
+        this.userRepository = userRepository;
+        this.databaseWriter = databaseWriter;
+        this.jdbcTemplate = jdbcTemplate;
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setBusyTimeout(busyTimeoutMs);
+        SQLiteDataSource sqlite = new SQLiteDataSource(config);
+        sqlite.setUrl(url.isBlank() ? shards.siblingUrl("-directory") : url);
+
+        this.pool = new HikariDataSource();
+        pool.setPoolName("sqlite-directory");
+        pool.setDataSource(sqlite);
+        pool.setMaximumPoolSize(4);
+        this.directory = new JdbcTemplate(pool);
+
+        directory.execute("CREATE TABLE IF NOT EXISTS user_directory (" +
+                "email TEXT PRIMARY KEY, user_id INTEGER NOT NULL UNIQUE)");
+        directory.execute("CREATE TABLE IF NOT EXISTS id_sequences (" +
+                "name TEXT PRIMARY KEY, next_id INTEGER NOT NULL)");
+
+        ShardedIncrementGenerator.configure(shards::max, this::reserveIds);
+    }
+
+    // After the schema exists on every shard, before any request is served
+    @Override
+    public void afterSingletonsInstantiated() {
+        Long entries = directory.queryForObject("SELECT count(*) FROM user_directory", Long.class);
+        if (entries == null || entries == 0) {
+            fill();
+        }
+
+        // Past every account there is, and past Hibernate's old users_seq,
+        // which also counted accounts deleted before the directory existed
+        Long largest = directory.queryForObject("SELECT coalesce(max(user_id), 0) FROM user_directory", Long.class);
+        firstUserId = Math.max(largest + 1, shards.max("users_seq", "SELECT max(next_val) FROM users_seq"));
+    }
+
+    private void fill() {
+        int added = 0;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            List<Object[]> users = new ArrayList<>();
+            try (ShardContext.Scope scope = ShardContext.enter(shard)) {
+                jdbcTemplate.query("SELECT email, id FROM users",
+                        rs -> { users.add(new Object[]{rs.getString(1), rs.getLong(2)}); });
+            }
+            directory.batchUpdate("INSERT OR IGNORE INTO user_directory(email, user_id) VALUES (?, ?)", users);
+            added += users.size();
+        }
+        if (added > 0) {
+            log.info("Filled the user directory with {} existing accounts", added);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        pool.close();
+    }
+
+    public boolean exists(String email) {
+        return findUserId(email) != null;
+    }
+
+    public Optional<User> findByEmail(String email) {
+        Long userId = findUserId(email);
+        if (userId == null) {
+            return Optional.empty();
+        }
+        try (ShardContext.Scope scope = shards.enter(userId)) {
+            return userRepository.findById(userId);
+        }
+    }
+
+    // Null if the email is already registered. The id is reserved before the
+    // insert and is simply skipped if the insert finds the email taken.
+    public User create(String email, String name, String passwordHash) {
+        long userId = reserveIds("users", firstUserId, 1);
+        int inserted = directory.update(
+                "INSERT OR IGNORE INTO user_directory(email, user_id) VALUES (?, ?)", email, userId);
+        if (inserted == 0) {
+            return null;
+        }
+
+        try (ShardContext.Scope scope = shards.enter(userId)) {
+            return databaseWriter.write(() -> {
+                jdbcTemplate.update(
+                        "INSERT INTO users(id, email, name, password_hash, created_at) VALUES (?, ?, ?, ?, ?)",
+                        userId, email, name, passwordHash, new Timestamp(System.currentTimeMillis()));
+                return userRepository.findById(userId).orElseThrow();
+            });
+        } catch (RuntimeException e) {
+            // Otherwise the email could never be registered again
+            directory.update("DELETE FROM user_directory WHERE email = ? AND user_id = ?", email, userId);
+            throw e;
+        }
+    }
+
+    // Firebase accounts are created on first sign-in and have no password
+    public User findOrCreate(String email, String name) {
+        Optional<User> existing = findByEmail(email);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        User created = create(email, name, "");
+        return created != null ? created : findByEmail(email).orElseThrow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        directory.update("DELETE FROM user_directory WHERE email = ? AND user_id = ?",
+                event.getEmail(), event.getUserId());
+    }
+
+    // One statement, so concurrent reservations cannot overlap; next_id only grows
+    public long reserveIds(String sequence, long floor, int size) {
+        Long end = directory.queryForObject(
+                "INSERT INTO id_sequences(name, next_id) VALUES (?, ?) " +
+                "ON CONFLICT(name) DO UPDATE SET next_id = max(next_id + ?, excluded.next_id) " +
+                "RETURNING next_id",
+                Long.class, sequence, floor + size, size);
+        return end - size;
+    }
+
+    private Long findUserId(String email) {
+        List<Long> ids = directory.queryForList(
+                "SELECT user_id FROM user_directory WHERE email = ?", Long.class, email);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+}
@@ -0,0 +1,54 @@
+package com.lcorp.notes.tools;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Prints, per user, how much note content takes on disk against its
+// uncompressed size (see notes.storage.compression). notes_fts keeps no copy of
+// the text, so these columns are all of it. Read-only, so it can be pointed at
+// the live database.
+//
+//   java -cp notes-backend.jar -Dloader.main=com.lcorp.notes.tools.CompressionReport \
+//        org.springframework.boot.loader.launch.PropertiesLauncher lcorpnotes.sqlite3
+public class CompressionReport {
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length != 1) {
+            System.err.println("Usage: CompressionReport <path/to/database.sqlite3>");
+            System.exit(2);
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:file:" + args[0] + "?mode=ro");
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "SELECT u.id, u.email, count(n.id), count(n.content_packed), " +
+                     "COALESCE(sum(COALESCE(n.content_length, length(CAST(n.content AS BLOB)))), 0), " +
+                     "COALESCE(sum(length(CAST(n.content AS BLOB)) + COALESCE(length(n.content_packed), 0)), 0) " +
+                     "FROM users u LEFT JOIN notes n ON n.owner_id = u.id " +
+                     "GROUP BY u.id, u.email ORDER BY 5 DESC")) {
+            System.out.printf("%-8s %-40s %8s %8s %14s %14s %7s%n",
+                    "user", "email", "notes", "packed", "raw bytes", "stored bytes", "ratio");
+
+            long totalRaw = 0;
+            long totalStored = 0;
+            while (rows.next()) {
+                long raw = rows.getLong(5);
+                long stored = rows.getLong(6);
+                totalRaw += raw;
+                totalStored += stored;
+                System.out.printf("%-8d %-40s %8d %8d %14d %14d %7s%n",
+                        rows.getLong(1), rows.getString(2), rows.getLong(3), rows.getLong(4), raw, stored, ratio(raw, stored));
+            }
+
+            System.out.printf("%-8s %-40s %8s %8s %14d %14d %7s%n",
+                    "total", "", "", "", totalRaw, totalStored, ratio(totalRaw, totalStored));
+        }
+    }
+
+    private static String ratio(long raw, long stored) {
+        return stored == 0 ? "-" : String.format("%.2fx", (double) raw / stored);
+    }
+}
@@ -0,0 +1,27 @@
+package com.lcorp.notes.tools;
+
+import com.lcorp.notes.service.NoteSearchIndex;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+// Rebuilds notes_fts from scratch for an existing database file, e.g. one that
+// predates full-text search. Stop the server first; the running application
+// only ever updates the index incrementally.
+//
+//   java -cp notes-backend.jar -Dloader.main=com.lcorp.notes.tools.SearchIndexRebuild \
+//        org.springframework.boot.loader.launch.PropertiesLauncher lcorpnotes.sqlite3
+public class SearchIndexRebuild {
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length != 1) {
+            System.err.println("Usage: SearchIndexRebuild <path/to/database.sqlite3>");
+            System.exit(2);
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + args[0])) {
+            System.out.println("Indexed " + NoteSearchIndex.rebuild(connection) + " notes");
+        }
+    }
+}
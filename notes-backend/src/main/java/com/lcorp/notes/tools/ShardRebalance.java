@@ -0,0 +1,183 @@
+package com.lcorp.notes.tools;
+
+import com.lcorp.notes.config.Shards;
+import com.lcorp.notes.service.NoteSearchIndex;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Moves users to the shard they belong on after notes.storage.shards changed
+// (see Shards). Stop the server first, run this with the new count, then start
+// the server with it. With jump consistent hashing only the users the new
+// shards take over move, each in one transaction; ids are global, so rows keep
+// them. Shard files that end up empty are listed and can be deleted.
+//
+//   java -cp notes-backend.jar -Dloader.main=com.lcorp.notes.tools.ShardRebalance \
+//        org.springframework.boot.loader.launch.PropertiesLauncher lcorpnotes.sqlite3 4
+public class ShardRebalance {
+
+    // In the order rows are copied; deleted in reverse
+    private static final String[] OWNED_TABLES = {"folders", "notes", "note_revisions", "import_jobs", "tombstones"};
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length != 2) {
+            System.err.println("Usage: ShardRebalance <path/to/database.sqlite3> <shard count>");
+            System.exit(2);
+        }
+        String baseUrl = "jdbc:sqlite:" + args[0];
+        int count = Integer.parseInt(args[1]);
+        if (count < 1) {
+            System.err.println("The shard count must be at least 1");
+            System.exit(2);
+        }
+
+        // Shrinking leaves users on shards past the new count; those are read too
+        int existing = 0;
+        while (new File(path(baseUrl, existing)).exists()) {
+            existing++;
+        }
+        if (existing == 0) {
+            System.err.println("No database at " + args[0]);
+            System.exit(2);
+        }
+
+        for (int shard = 0; shard < count; shard++) {
+            createSchema(baseUrl, shard);
+        }
+
+        int moved = 0;
+        for (int source = 0; source < Math.max(existing, count); source++) {
+            try (Connection connection = DriverManager.getConnection(Shards.url(baseUrl, source))) {
+                for (long userId : userIds(connection)) {
+                    int target = Shards.shardOf(userId, count);
+                    if (target != source) {
+                        move(connection, userId, path(baseUrl, target));
+                        moved++;
+                    }
+                }
+            }
+        }
+        System.out.println("Moved " + moved + " users");
+
+        for (int shard = count; shard < existing; shard++) {
+            System.out.println("Shard " + shard + " is no longer used: " + path(baseUrl, shard));
+        }
+    }
+
+    private static String path(String baseUrl, int shard) {
+        return Shards.url(baseUrl, shard).substring("jdbc:sqlite:".length());
+    }
+
+    // A new shard gets shard 0's tables and indexes; the server would create
+    // them too, but only after it has started routing users there
+    private static void createSchema(String baseUrl, int shard) throws SQLException {
+        if (shard == 0) {
+            return;
+        }
+        List<String> missing = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(Shards.url(baseUrl, shard));
+             Statement statement = connection.createStatement()) {
+            statement.execute("ATTACH DATABASE '" + path(baseUrl, 0).replace("'", "''") + "' AS origin");
+            // FTS5 creates its shadow tables itself
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT sql FROM origin.sqlite_master WHERE sql IS NOT NULL " +
+                    "AND name NOT LIKE 'sqlite_%' AND name NOT LIKE 'notes_fts_%' " +
+                    "AND name NOT IN (SELECT name FROM main.sqlite_master) " +
+                    "ORDER BY type = 'index'")) {
+                while (rows.next()) {
+                    missing.add(rows.getString(1));
+                }
+            }
+            statement.execute("DETACH DATABASE origin");
+            for (String sql : missing) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private static List<Long> userIds(Connection connection) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT id FROM users ORDER BY id")) {
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static void move(Connection connection, long userId, String targetPath) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ATTACH DATABASE '" + targetPath.replace("'", "''") + "' AS target");
+            connection.setAutoCommit(false);
+            try {
+                copy(connection, "users", "id = ?", userId);
+                for (String table : OWNED_TABLES) {
+                    copy(connection, table, "owner_id = ?", userId);
+                }
+                // The index holds no text to copy, so index the moved notes anew
+                NoteSearchIndex.indexNotes(connection, "target", "owner_id = ?", userId);
+
+                update(connection, "DELETE FROM main.notes_fts " +
+                        "WHERE rowid IN (SELECT id FROM main.notes WHERE owner_id = ?)", userId);
+                for (int i = OWNED_TABLES.length - 1; i >= 0; i--) {
+                    update(connection, "DELETE FROM main." + OWNED_TABLES[i] + " WHERE owner_id = ?", userId);
+                }
+                update(connection, "DELETE FROM main.users WHERE id = ?", userId);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+                statement.execute("DETACH DATABASE target");
+            }
+        }
+    }
+
+    // Only the columns both files have, by name: ddl-auto leaves columns it no
+    // longer maps in older files, and the order may differ. Tombstone ids are
+    // per shard (ChangeTracker assigns them with SQL) and are numbered after
+    // the target's own.
+    private static void copy(Connection connection, String table, String where, long userId) throws SQLException {
+        List<String> columns = columns(connection, "main", table);
+        columns.retainAll(columns(connection, "target", table));
+
+        String insertColumns = String.join(", ", columns);
+        String selectColumns = insertColumns;
+        if (table.equals("tombstones")) {
+            List<String> values = new ArrayList<>(columns);
+            values.set(columns.indexOf("id"),
+                    "(SELECT coalesce(max(id), 0) FROM target.tombstones) + row_number() OVER (ORDER BY id)");
+            selectColumns = String.join(", ", values);
+        }
+
+        update(connection, "INSERT INTO target." + table + "(" + insertColumns + ") " +
+                "SELECT " + selectColumns + " FROM main." + table + " WHERE " + where, userId);
+    }
+
+    private static List<String> columns(Connection connection, String schema, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("PRAGMA " + schema + ".table_info(" + table + ")")) {
+            while (rows.next()) {
+                columns.add(rows.getString("name"));
+            }
+        }
+        return columns;
+    }
+
+    private static void update(Connection connection, String sql, long userId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, userId);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+-- Full-text index over notes, maintained by NoteSearchIndex. Rows are keyed by
+-- note id; owner_id/folder_id hold the ids as text so queries can be scoped.
+-- Contentless: only the index is stored, the text stays (compressed) in notes.
+-- NoteSearchIndex rebuilds an index created before that on startup.
+CREATE VIRTUAL TABLE IF NOT EXISTS notes_fts USING fts5(
+    title, content, owner_id, folder_id, content = '', contentless_delete = 1,
+    tokenize = 'unicode61 remove_diacritics 2'
+);
+
+-- Rows from before delta sync count as version 0, i.e. part of any full sync
+UPDATE notes SET change_version = 0 WHERE change_version IS NULL;
+UPDATE folders SET change_version = 0 WHERE change_version IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_notes_owner_change_version ON notes(owner_id, change_version);
+CREATE INDEX IF NOT EXISTS idx_folders_owner_change_version ON folders(owner_id, change_version);
+CREATE INDEX IF NOT EXISTS idx_tombstones_owner_change_version ON tombstones(owner_id, change_version);
+-- ChangeTracker prunes tombstones by age
+CREATE INDEX IF NOT EXISTS idx_tombstones_deleted_at ON tombstones(deleted_at);
+
+-- Set-based folder deletes (and their tombstones) find the folder's notes here
+CREATE INDEX IF NOT EXISTS idx_notes_folder_id ON notes(folder_id);
+
+-- List queries: owner equality, then rows already in (updated_at, id) order so
+-- neither the filter nor the sort touches another user's notes. The favorites
+-- index only holds starred notes. QueryPlanTest checks these are used.
+CREATE INDEX IF NOT EXISTS idx_notes_owner_updated ON notes(owner_id, updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_notes_owner_folder_updated ON notes(owner_id, folder_id, updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_notes_owner_favorite_updated ON notes(owner_id, updated_at, id) WHERE is_favorite = 1;
+-- Export and import walk a user's notes in id order
+CREATE INDEX IF NOT EXISTS idx_notes_owner_id ON notes(owner_id, id);
+CREATE INDEX IF NOT EXISTS idx_folders_owner_created ON folders(owner_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_import_jobs_owner_created ON import_jobs(owner_id, created_at);
+
+-- Revisions are read per note, newest first (see NoteRevisions)
+CREATE INDEX IF NOT EXISTS idx_note_revisions_note_revision ON note_revisions(note_id, revision);
+CREATE INDEX IF NOT EXISTS idx_note_revisions_owner ON note_revisions(owner_id);
@@ -0,0 +1,83 @@
+package com.lcorp.notes;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcorp.notes.model.User;
+import com.lcorp.notes.security.JwtUtil;
+import com.lcorp.notes.service.UserDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs the whole application against a fresh SQLite file in a temporary
+// directory; every subclass with the same properties shares one context.
+// Google's signing keys are never fetched and the management port is off.
+@SpringBootTest(properties = {
+        "management.server.port=-1",
+        "firebase.keys.url=http://127.0.0.1:9/keys",
+        "firebase.keys.refresh-interval=PT24H"
+})
+@AutoConfigureMockMvc
+public abstract class NotesIntegrationTest {
+
+    protected static final Path DATA_DIR = createDataDir();
+
+    @Autowired
+    protected MockMvc mvc;
+
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    @Autowired
+    protected UserDirectory userDirectory;
+
+    @Autowired
+    protected JwtUtil jwtUtil;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + DATA_DIR.resolve("notes.sqlite3"));
+    }
+
+    private static Path createDataDir() {
+        try {
+            return Files.createTempDirectory("notes-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A new account; returns the Authorization header value for it
+    protected String signUp() {
+        User user = userDirectory.create(UUID.randomUUID() + "@test.local", "Test", "");
+        return "Bearer " + jwtUtil.generateToken(user.getId());
+    }
+
+    protected JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    protected JsonNode createNote(String auth, String title, String content) throws Exception {
+        return json(mvc.perform(post("/api/notes")
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("title", title, "content", content))))
+                .andExpect(status().isCreated())
+                .andReturn());
+    }
+}
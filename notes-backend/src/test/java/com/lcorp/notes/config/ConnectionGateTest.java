@@ -0,0 +1,95 @@
+package com.lcorp.notes.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionGateTest {
+
+    private static DataSource pool() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return pool;
+    }
+
+    @Test
+    void waitsForAPermitAndTimesOut() throws Exception {
+        ConnectionGate gate = new ConnectionGate(pool(), 2, Duration.ofMillis(50));
+        Connection first = gate.getConnection();
+        gate.getConnection();
+
+        assertThatThrownBy(gate::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        assertThat(gate.getConnection()).isNotNull();
+    }
+
+    @Test
+    void closingHandsThePermitToTheNextWaiter() throws Exception {
+        ConnectionGate gate = new ConnectionGate(pool(), 1, Duration.ofSeconds(10));
+        Connection held = gate.getConnection();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return gate.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertThat(waiting).isNotDone();
+
+        held.close();
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void releasesOnlyOncePerConnection() throws Exception {
+        ConnectionGate gate = new ConnectionGate(pool(), 1, Duration.ofMillis(50));
+        Connection connection = gate.getConnection();
+        connection.close();
+        connection.close();
+
+        gate.getConnection();
+        assertThatThrownBy(gate::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+    }
+
+    @Test
+    void delegatesToThePooledConnection() throws Exception {
+        Connection pooled = mock(Connection.class);
+        when(pooled.getAutoCommit()).thenReturn(true);
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(pooled);
+
+        Connection connection = new ConnectionGate(pool, 1, Duration.ofMillis(50)).getConnection();
+
+        assertThat(connection.getAutoCommit()).isTrue();
+        connection.close();
+        verify(pooled, times(1)).close();
+    }
+
+    @Test
+    void returnsThePermitWhenThePoolFails() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection())
+                .thenThrow(new SQLException("pool exhausted"))
+                .thenAnswer(invocation -> mock(Connection.class));
+        ConnectionGate gate = new ConnectionGate(pool, 1, Duration.ofMillis(50));
+
+        assertThatThrownBy(gate::getConnection).hasMessage("pool exhausted");
+        assertThat(gate.getConnection()).isNotNull();
+    }
+}
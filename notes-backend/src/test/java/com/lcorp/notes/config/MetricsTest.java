@@ -0,0 +1,68 @@
+package com.lcorp.notes.config;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MetricsTest extends NotesIntegrationTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Summed over the tags not asked for, e.g. every status of a URI
+    private long count(String name, String... tags) {
+        return meterRegistry.find(name).tags(tags).timers().stream().mapToLong(Timer::count).sum();
+    }
+
+    @Test
+    void tokenChecksAreTimedByIssuerAndOutcome() throws Exception {
+        String auth = signUp();
+        long accepted = count("notes.auth.token", "issuer", "jwt", "outcome", "accepted");
+        long rejected = count("notes.auth.token", "issuer", "jwt", "outcome", "rejected");
+
+        mvc.perform(get("/api/notes").header("Authorization", auth)).andExpect(status().isOk());
+        mvc.perform(get("/api/notes").header("Authorization", "Bearer not-a-token"))
+                .andExpect(status().is4xxClientError());
+
+        assertThat(count("notes.auth.token", "issuer", "jwt", "outcome", "accepted")).isEqualTo(accepted + 1);
+        assertThat(count("notes.auth.token", "issuer", "jwt", "outcome", "rejected")).isEqualTo(rejected + 1);
+    }
+
+    @Test
+    void passwordHashingAndWritesAreTimed() throws Exception {
+        long encodes = count("notes.auth.password", "operation", "encode");
+        long commits = count("notes.db.write.commit");
+
+        mvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "email", UUID.randomUUID() + "@test.local", "name", "Metrics", "password", "hunter22"))))
+                .andExpect(status().isCreated());
+        createNote(signUp(), "Timed", "");
+
+        assertThat(count("notes.auth.password", "operation", "encode")).isEqualTo(encodes + 1);
+        assertThat(count("notes.db.write.commit")).isGreaterThan(commits);
+    }
+
+    @Test
+    void requestsAreTaggedByUriPattern() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Pattern", "").get("id").asLong();
+        long before = count("http.server.requests", "uri", "/api/notes/{noteId}");
+
+        mvc.perform(get("/api/notes/" + id).header("Authorization", auth)).andExpect(status().isOk());
+
+        assertThat(count("http.server.requests", "uri", "/api/notes/{noteId}")).isEqualTo(before + 1);
+    }
+}
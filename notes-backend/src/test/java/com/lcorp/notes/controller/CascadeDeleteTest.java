@@ -0,0 +1,172 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CascadeDeleteTest extends NotesIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private FolderController folderController;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long createFolder(String auth, String name) throws Exception {
+        return json(mvc.perform(post("/api/folders")
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", name))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+    }
+
+    private long createNoteIn(String auth, long folderId, String title) throws Exception {
+        return json(mvc.perform(post("/api/notes")
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                Map.of("title", title, "content", "body of " + title, "folderId", folderId))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+    }
+
+    // Changing the title leaves a revision behind
+    private void rename(String auth, long noteId, String title) throws Exception {
+        mvc.perform(put("/api/notes/" + noteId)
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("title", title, "content", "renamed"))))
+                .andExpect(status().isOk());
+    }
+
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+
+    private static String in(List<Long> ids) {
+        return String.join(",", ids.stream().map(String::valueOf).toList());
+    }
+
+    @Test
+    void deletingAFolderRemovesItsNotesAndLeavesTombstones() throws Exception {
+        String auth = signUp();
+        long folder = createFolder(auth, "Doomed");
+        long other = createFolder(auth, "Kept");
+        List<Long> doomed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            doomed.add(createNoteIn(auth, folder, "doomed" + i));
+        }
+        rename(auth, doomed.get(0), "doomed renamed");
+        long kept = createNoteIn(auth, other, "kept");
+        long loose = createNote(auth, "loose", "").get("id").asLong();
+
+        mvc.perform(delete("/api/folders/" + folder).header("Authorization", auth)).andExpect(status().isOk());
+
+        assertThat(count("SELECT count(*) FROM notes WHERE id IN (" + in(doomed) + ")")).isZero();
+        assertThat(count("SELECT count(*) FROM notes_fts WHERE rowid IN (" + in(doomed) + ")")).isZero();
+        assertThat(count("SELECT count(*) FROM note_revisions WHERE note_id IN (" + in(doomed) + ")")).isZero();
+        assertThat(count("SELECT count(*) FROM folders WHERE id = ?", folder)).isZero();
+
+        // One tombstone per note and one for the folder, all in the same change
+        assertThat(count("SELECT count(*) FROM tombstones WHERE entity_id IN (" + in(doomed) + ")"))
+                .isEqualTo(doomed.size());
+        assertThat(count("SELECT count(DISTINCT change_version) FROM tombstones WHERE entity_id IN ("
+                + in(doomed) + ", " + folder + ")")).isEqualTo(1);
+
+        JsonNode notes = json(mvc.perform(get("/api/notes").header("Authorization", auth)).andReturn());
+        assertThat(notes).extracting(note -> note.get("id").asLong()).containsExactlyInAnyOrder(kept, loose);
+        mvc.perform(delete("/api/folders/" + folder).header("Authorization", auth)).andExpect(status().isNotFound());
+    }
+
+    // As when both are in one group commit: the move is not flushed yet when
+    // the folder is deleted
+    @Test
+    void notesMovedEarlierInTheSameTransactionAreTombstonedWhereTheyAreNow() throws Exception {
+        String auth = signUp();
+        long folder = createFolder(auth, "Doomed");
+        long movedOut = createNoteIn(auth, folder, "moved out");
+        long movedIn = createNote(auth, "moved in", "").get("id").asLong();
+        long userId = jdbcTemplate.queryForObject("SELECT owner_id FROM notes WHERE id = ?", Long.class, movedIn);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Note out = noteRepository.findById(movedOut).orElseThrow();
+            Note in = noteRepository.findById(movedIn).orElseThrow();
+            in.setFolder(out.getFolder());
+            out.setFolder(null);
+            folderController.deleteFolder(folder, new UsernamePasswordAuthenticationToken(userId, null, List.of()));
+        });
+
+        assertThat(count("SELECT count(*) FROM notes WHERE id = ?", movedOut)).isEqualTo(1);
+        assertThat(count("SELECT count(*) FROM notes WHERE id = ?", movedIn)).isZero();
+        assertThat(count("SELECT count(*) FROM tombstones WHERE entity_type = 'NOTE' AND entity_id = ?", movedOut))
+                .isZero();
+        assertThat(count("SELECT count(*) FROM tombstones WHERE entity_type = 'NOTE' AND entity_id = ?", movedIn))
+                .isEqualTo(1);
+        assertThat(folderRepository.findById(folder)).isEmpty();
+    }
+
+    @Test
+    void foldersOfOtherUsersAreNotFound() throws Exception {
+        String owner = signUp();
+        long folder = createFolder(owner, "Mine");
+        long note = createNoteIn(owner, folder, "mine");
+
+        mvc.perform(delete("/api/folders/" + folder).header("Authorization", signUp())).andExpect(status().isNotFound());
+
+        assertThat(count("SELECT count(*) FROM notes WHERE id = ?", note)).isEqualTo(1);
+    }
+
+    @Test
+    void deletingAnAccountRemovesEverythingItOwned() throws Exception {
+        String auth = signUp();
+        String bystander = signUp();
+        long folder = createFolder(auth, "Folder");
+        List<Long> notes = new ArrayList<>(List.of(
+                createNoteIn(auth, folder, "filed"),
+                createNote(auth, "loose", "searchable").get("id").asLong()));
+        rename(auth, notes.get(1), "loose renamed");
+        long survivor = createNote(bystander, "survivor", "").get("id").asLong();
+        long userId = jdbcTemplate.queryForObject("SELECT owner_id FROM notes WHERE id = ?", Long.class, notes.get(0));
+
+        mvc.perform(delete("/api/profile").header("Authorization", auth)).andExpect(status().isOk());
+
+        assertThat(count("SELECT count(*) FROM users WHERE id = ?", userId)).isZero();
+        assertThat(count("SELECT count(*) FROM notes WHERE owner_id = ?", userId)).isZero();
+        assertThat(count("SELECT count(*) FROM folders WHERE owner_id = ?", userId)).isZero();
+        assertThat(count("SELECT count(*) FROM note_revisions WHERE owner_id = ?", userId)).isZero();
+        assertThat(count("SELECT count(*) FROM notes_fts WHERE rowid IN (" + in(notes) + ")")).isZero();
+        assertThat(count("SELECT count(*) FROM notes WHERE id = ?", survivor)).isEqualTo(1);
+
+        assertThat(json(mvc.perform(get("/api/notes").header("Authorization", auth)).andReturn())).isEmpty();
+    }
+}
@@ -0,0 +1,66 @@
+package com.lcorp.notes.controller;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ConditionalGetTest extends NotesIntegrationTest {
+
+    private String etag(String auth, String path) throws Exception {
+        return mvc.perform(get(path).header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+    }
+
+    @Test
+    void unchangedDataGetsNotModified() throws Exception {
+        String auth = signUp();
+
+        for (String path : new String[]{"/api/notes", "/api/folders", "/api/profile"}) {
+            String etag = etag(auth, path);
+            mvc.perform(get(path).header("Authorization", auth).header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+        }
+    }
+
+    @Test
+    void anyWriteChangesTheTag() throws Exception {
+        String auth = signUp();
+        String notes = etag(auth, "/api/notes");
+        String folders = etag(auth, "/api/folders");
+
+        mvc.perform(post("/api/folders").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", "Work"))))
+                .andExpect(status().isCreated());
+
+        mvc.perform(get("/api/folders").header("Authorization", auth).header("If-None-Match", folders))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/notes").header("Authorization", auth).header("If-None-Match", notes))
+                .andExpect(status().isOk());
+
+        String afterFolder = etag(auth, "/api/notes");
+        createNote(auth, "New", "");
+        assertThat(etag(auth, "/api/notes")).isNotEqualTo(afterFolder);
+    }
+
+    @Test
+    void tagsAreNotSharedBetweenUsers() throws Exception {
+        String alice = signUp();
+        String bob = signUp();
+
+        mvc.perform(get("/api/notes").header("Authorization", bob).header("If-None-Match", etag(alice, "/api/notes")))
+                .andExpect(status().isOk());
+    }
+}
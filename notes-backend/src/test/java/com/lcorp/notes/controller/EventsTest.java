@@ -0,0 +1,102 @@
+package com.lcorp.notes.controller;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class EventsTest extends NotesIntegrationTest {
+
+    private static final Pattern READY_CURSOR = Pattern.compile("event:ready\\n(?:id:(\\d+)\\n)?data:\\{\"cursor\":\"(\\d+)\"}");
+
+    private MvcResult open(String auth, String lastEventId) throws Exception {
+        var request = get("/api/events").header("Authorization", auth).accept(MediaType.TEXT_EVENT_STREAM);
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        return mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    // Events are written by sender threads, so wait for them to arrive
+    private static String awaitContent(MvcResult stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String content = stream.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = stream.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        }
+        assertThat(content).contains(expected);
+        return content;
+    }
+
+    private static String readyCursor(String content) {
+        Matcher matcher = READY_CURSOR.matcher(content);
+        assertThat(matcher.find()).as("ready event in %s", content).isTrue();
+        return matcher.group(2);
+    }
+
+    @Test
+    void streamsCommittedChangesToTheirOwnerOnly() throws Exception {
+        String auth = signUp();
+        String other = signUp();
+        MvcResult stream = open(auth, null);
+        MvcResult otherStream = open(other, null);
+        awaitContent(stream, "event:ready");
+        awaitContent(otherStream, "event:ready");
+
+        long id = createNote(auth, "Live", "").get("id").asLong();
+        awaitContent(stream, "event:note.created");
+        mvc.perform(delete("/api/notes/" + id).header("Authorization", auth)).andExpect(status().is2xxSuccessful());
+        String content = awaitContent(stream, "event:note.deleted");
+
+        assertThat(content).contains("\"title\":\"Live\"").contains("{\"id\":" + id + "}");
+        assertThat(content.indexOf("note.created")).isLessThan(content.indexOf("note.deleted"));
+        assertThat(otherStream.getResponse().getContentAsString()).doesNotContain("note.");
+    }
+
+    @Test
+    void reconnectingReplaysWhatWasMissed() throws Exception {
+        String auth = signUp();
+        long gone = createNote(auth, "Gone", "").get("id").asLong();
+        String cursor = readyCursor(awaitContent(open(auth, null), "event:ready"));
+
+        long missed = createNote(auth, "Missed", "").get("id").asLong();
+        mvc.perform(delete("/api/notes/" + gone).header("Authorization", auth)).andExpect(status().is2xxSuccessful());
+
+        String replay = awaitContent(open(auth, cursor), "event:ready");
+        assertThat(replay).contains("event:note.updated").contains("\"id\":" + missed)
+                .contains("event:note.deleted").contains("{\"id\":" + gone + "}")
+                .doesNotContain("\"title\":\"Gone\"");
+        assertThat(Long.parseLong(readyCursor(replay))).isGreaterThan(Long.parseLong(cursor));
+    }
+
+    @Test
+    void tooLargeAGapAsksForAResync() throws Exception {
+        String auth = signUp();
+        String cursor = readyCursor(awaitContent(open(auth, null), "event:ready"));
+
+        String notes = IntStream.range(0, 501)
+                .mapToObj(i -> "{\"type\":\"note\",\"title\":\"n" + i + "\",\"content\":\"\"}")
+                .collect(Collectors.joining("\n"));
+        mvc.perform(post("/api/import").header("Authorization", auth).param("format", "ndjson")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(notes.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+
+        String replay = awaitContent(open(auth, cursor), "event:resync");
+        assertThat(replay).doesNotContain("note.updated").doesNotContain("event:ready");
+    }
+}
@@ -0,0 +1,128 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import com.lcorp.notes.service.NoteExporter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ExportTest extends NotesIntegrationTest {
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private byte[] export(String auth, String format) throws Exception {
+        MvcResult started = mvc.perform(get("/api/export").header("Authorization", auth).param("format", format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private long createFolder(String auth, String name) throws Exception {
+        return json(mvc.perform(post("/api/folders").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", name))))
+                .andReturn()).get("id").asLong();
+    }
+
+    private List<JsonNode> lines(byte[] ndjson) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : new String(ndjson, StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    void ndjsonHasFoldersThenEveryNote() throws Exception {
+        String auth = signUp();
+        long folder = createFolder(auth, "Work");
+        createNote(auth, "One", "first\nline");
+        createNote(auth, "Two", "\"quoted\"");
+
+        List<JsonNode> lines = lines(export(auth, "ndjson"));
+
+        assertThat(lines).extracting(line -> line.get("type").asText()).containsExactly("folder", "note", "note");
+        assertThat(lines.get(0).get("id").asLong()).isEqualTo(folder);
+        assertThat(lines.get(1).get("content").asText()).isEqualTo("first\nline");
+        assertThat(lines.get(2).get("content").asText()).isEqualTo("\"quoted\"");
+    }
+
+    @Test
+    void zipHasAMarkdownFilePerNoteInItsFolder() throws Exception {
+        String auth = signUp();
+        long folder = createFolder(auth, "Work/Home");
+        long filed = json(mvc.perform(post("/api/notes").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("title", "Plan", "content", "body", "folderId", folder))))
+                .andReturn()).get("id").asLong();
+        long loose = createNote(auth, "Plan", "other").get("id").asLong();
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(export(auth, "zip")), StandardCharsets.UTF_8)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertThat(entries).containsOnlyKeys("Work_Home/", "Work_Home/Plan (" + filed + ").md", "Plan (" + loose + ").md");
+        assertThat(entries.get("Plan (" + loose + ").md")).isEqualTo("# Plan\n\nother");
+    }
+
+    @Test
+    void walksNotesAcrossChunks() throws Exception {
+        String auth = signUp();
+        Long userId = jwtUtil.parseUserId(auth.substring("Bearer ".length()));
+        for (int i = 0; i < 7; i++) {
+            createNote(auth, "Note " + i, "");
+        }
+        NoteExporter exporter = new NoteExporter(noteRepository, folderRepository, entityManager,
+                transactionManager, objectMapper, 3);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeNdjson(userId, out);
+
+        assertThat(lines(out.toByteArray())).extracting(line -> line.get("title").asText())
+                .containsExactly("Note 0", "Note 1", "Note 2", "Note 3", "Note 4", "Note 5", "Note 6");
+    }
+
+    @Test
+    void unknownFormatIsRejected() throws Exception {
+        mvc.perform(get("/api/export").header("Authorization", signUp()).param("format", "pdf"))
+                .andExpect(status().isBadRequest());
+    }
+}
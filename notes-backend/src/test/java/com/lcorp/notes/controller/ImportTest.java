@@ -0,0 +1,115 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ImportTest extends NotesIntegrationTest {
+
+    private static final String NDJSON = String.join("\n",
+            "{\"type\":\"folder\",\"id\":7,\"name\":\"Recipes\"}",
+            "{\"type\":\"note\",\"title\":\"Soup\",\"content\":\"leek and potato\",\"folderId\":7}",
+            "",
+            "{\"type\":\"note\",\"title\":\"Loose\",\"content\":\"no folder\",\"isFavorite\":true}");
+
+    private ResultActions upload(String auth, String format, Long jobId, byte[] body) throws Exception {
+        var request = post("/api/import").header("Authorization", auth)
+                .param("format", format)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(body);
+        if (jobId != null) {
+            request.param("jobId", String.valueOf(jobId));
+        }
+        return mvc.perform(request);
+    }
+
+    private JsonNode notes(String auth) throws Exception {
+        return json(mvc.perform(get("/api/notes").header("Authorization", auth)).andReturn());
+    }
+
+    @Test
+    void importsFoldersAndNotesFromNdjson() throws Exception {
+        String auth = signUp();
+
+        upload(auth, "ndjson", null, NDJSON.getBytes(StandardCharsets.UTF_8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.foldersCreated").value(1))
+                .andExpect(jsonPath("$.notesCreated").value(2));
+
+        JsonNode folders = json(mvc.perform(get("/api/folders").header("Authorization", auth)).andReturn());
+        assertThat(folders).hasSize(1);
+        long folderId = folders.get(0).get("id").asLong();
+
+        JsonNode notes = notes(auth);
+        assertThat(notes).hasSize(2);
+        for (JsonNode note : notes) {
+            if (note.get("title").asText().equals("Soup")) {
+                assertThat(note.get("folderId").asLong()).isEqualTo(folderId);
+            } else {
+                assertThat(note.hasNonNull("folderId")).isFalse();
+                assertThat(note.get("isFavorite").asBoolean()).isTrue();
+            }
+        }
+
+        assertThat(json(mvc.perform(get("/api/notes/search").header("Authorization", auth).param("q", "leek"))
+                .andReturn())).hasSize(1);
+    }
+
+    @Test
+    void importsMarkdownFilesFromZip() throws Exception {
+        String auth = signUp();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes, StandardCharsets.UTF_8)) {
+            zip.putNextEntry(new ZipEntry("Work/Plan.md"));
+            zip.write("# Quarterly plan\n\nship it".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("todo.txt"));
+            zip.write("milk".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("image.png"));
+            zip.write(new byte[]{1, 2, 3});
+        }
+
+        upload(auth, "zip", null, bytes.toByteArray())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.foldersCreated").value(1))
+                .andExpect(jsonPath("$.notesCreated").value(2));
+
+        assertThat(notes(auth)).extracting(note -> note.get("title").asText())
+                .containsExactlyInAnyOrder("Quarterly plan", "todo");
+    }
+
+    @Test
+    void failedImportResumesWithoutDuplicates() throws Exception {
+        String auth = signUp();
+        byte[] broken = (NDJSON + "\n{not json").getBytes(StandardCharsets.UTF_8);
+
+        JsonNode failed = json(upload(auth, "ndjson", null, broken)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.job.status").value("FAILED"))
+                .andReturn());
+        long jobId = failed.get("job").get("id").asLong();
+
+        upload(auth, "ndjson", jobId, NDJSON.getBytes(StandardCharsets.UTF_8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+        assertThat(notes(auth)).hasSize(2);
+
+        upload(auth, "ndjson", jobId, NDJSON.getBytes(StandardCharsets.UTF_8))
+                .andExpect(status().isConflict());
+        upload(signUp(), "ndjson", jobId, NDJSON.getBytes(StandardCharsets.UTF_8))
+                .andExpect(status().isNotFound());
+    }
+}
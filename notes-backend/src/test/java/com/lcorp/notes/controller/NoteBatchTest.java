@@ -0,0 +1,110 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class NoteBatchTest extends NotesIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JsonNode batch(String auth, List<Map<String, Object>> operations) throws Exception {
+        return json(mvc.perform(post("/api/notes/batch").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("operations", operations))))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
+    private List<Long> searchIds(String auth, String q) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode result : json(mvc.perform(get("/api/notes/search").header("Authorization", auth).param("q", q))
+                .andReturn())) {
+            ids.add(result.get("id").asLong());
+        }
+        return ids;
+    }
+
+    private String syncCursor(String auth) throws Exception {
+        return json(mvc.perform(get("/api/sync/changes").header("Authorization", auth)).andReturn())
+                .get("cursor").asText();
+    }
+
+    @Test
+    void appliesEveryOperationAndItsSideEffects() throws Exception {
+        String auth = signUp();
+        long kept = createNote(auth, "Kept", "walrus").get("id").asLong();
+        long doomed = createNote(auth, "Doomed", "narwhal").get("id").asLong();
+        mvc.perform(put("/api/notes/" + doomed).header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("title", "Doomed", "content", "narwhal 2"))))
+                .andExpect(status().isOk());
+        assertThat(revisionCount(doomed)).isPositive();
+        String cursor = syncCursor(auth);
+
+        JsonNode results = batch(auth, List.of(
+                Map.of("op", "create", "title", "Fresh", "content", "platypus"),
+                Map.of("op", "update", "id", kept, "content", "walrus and pelican"),
+                Map.of("op", "delete", "id", doomed),
+                Map.of("op", "favorite", "id", kept, "isFavorite", true),
+                Map.of("op", "delete", "id", doomed),
+                Map.of("op", "explode", "id", kept)));
+
+        assertThat(results.get(0).get("status").asInt()).isEqualTo(201);
+        long fresh = results.get(0).get("id").asLong();
+        assertThat(results.get(1).get("note").get("content").asText()).isEqualTo("walrus and pelican");
+        assertThat(results.get(2).get("status").asInt()).isEqualTo(200);
+        assertThat(results.get(3).get("note").get("isFavorite").asBoolean()).isTrue();
+        assertThat(results.get(4).get("status").asInt()).isEqualTo(404);
+        assertThat(results.get(5).get("status").asInt()).isEqualTo(400);
+
+        assertThat(searchIds(auth, "platypus")).containsExactly(fresh);
+        assertThat(searchIds(auth, "pelican")).containsExactly(kept);
+        assertThat(searchIds(auth, "narwhal")).isEmpty();
+        assertThat(revisionCount(doomed)).isZero();
+
+        JsonNode changes = json(mvc.perform(get("/api/sync/changes").header("Authorization", auth)
+                .param("since", cursor)).andReturn());
+        assertThat(changes.get("deletedNoteIds")).extracting(JsonNode::asLong).containsExactly(doomed);
+        assertThat(changes.get("notes")).extracting(note -> note.get("id").asLong())
+                .containsExactlyInAnyOrder(kept, fresh);
+    }
+
+    @Test
+    void notesCreatedAndDeletedInOneBatchLeaveNothingIndexed() throws Exception {
+        String auth = signUp();
+        List<Map<String, Object>> creates = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            creates.add(Map.of("op", "create", "title", "Temp " + i, "content", "ephemeral"));
+        }
+        JsonNode created = batch(auth, creates);
+
+        List<Map<String, Object>> operations = new ArrayList<>();
+        for (JsonNode result : created) {
+            operations.add(Map.of("op", "update", "id", result.get("id").asLong(), "content", "transient"));
+            operations.add(Map.of("op", "delete", "id", result.get("id").asLong()));
+        }
+        batch(auth, operations);
+
+        assertThat(searchIds(auth, "ephemeral")).isEmpty();
+        assertThat(searchIds(auth, "transient")).isEmpty();
+    }
+
+    private int revisionCount(long noteId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM note_revisions WHERE note_id = ?", Integer.class, noteId);
+    }
+}
@@ -0,0 +1,83 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class NotePatchTest extends NotesIntegrationTest {
+
+    private ResultActions patchNote(String auth, long id, Object baseVersion, List<Map<String, Object>> edits)
+            throws Exception {
+        return mvc.perform(patch("/api/notes/" + id).header("Authorization", auth)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("baseVersion", baseVersion, "edits", edits))));
+    }
+
+    private String content(String auth, long id) throws Exception {
+        return json(mvc.perform(get("/api/notes/" + id).header("Authorization", auth)).andReturn())
+                .get("content").asText();
+    }
+
+    @Test
+    void editsApplyInOrderAndAdvanceTheVersion() throws Exception {
+        String auth = signUp();
+        JsonNode note = createNote(auth, "Patch", "hello world");
+        long id = note.get("id").asLong();
+        long version = note.get("version").asLong();
+
+        JsonNode patched = json(patchNote(auth, id, version, List.of(
+                Map.of("offset", 0, "delete", 5, "insert", "goodbye"),
+                Map.of("offset", 13, "insert", "!")))
+                .andExpect(status().isOk())
+                .andReturn());
+
+        assertThat(content(auth, id)).isEqualTo("goodbye world!");
+        assertThat(patched.get("version").asLong()).isGreaterThan(version);
+    }
+
+    @Test
+    void staleBaseVersionConflictsWithoutChangingTheNote() throws Exception {
+        String auth = signUp();
+        JsonNode note = createNote(auth, "Patch", "abc");
+        long id = note.get("id").asLong();
+        long base = note.get("version").asLong();
+
+        long current = json(patchNote(auth, id, base, List.of(Map.of("offset", 3, "insert", "d")))
+                .andExpect(status().isOk()).andReturn()).get("version").asLong();
+
+        patchNote(auth, id, base, List.of(Map.of("offset", 0, "insert", "x")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.version").value(current));
+        assertThat(content(auth, id)).isEqualTo("abcd");
+    }
+
+    @Test
+    void rejectsEditsOutsideTheTextAndForeignNotes() throws Exception {
+        String auth = signUp();
+        JsonNode note = createNote(auth, "Patch", "abc");
+        long id = note.get("id").asLong();
+        long version = note.get("version").asLong();
+
+        patchNote(auth, id, version, List.of(Map.of("offset", 4, "insert", "x")))
+                .andExpect(status().isBadRequest());
+        patchNote(auth, id, version, List.of(Map.of("offset", 1, "delete", 3)))
+                .andExpect(status().isBadRequest());
+        patchNote(auth, id, version, List.of(Map.of("offset", 0, "insert", "x"), Map.of("offset", 5, "insert", "y")))
+                .andExpect(status().isBadRequest());
+        assertThat(content(auth, id)).isEqualTo("abc");
+
+        patchNote(signUp(), id, version, List.of(Map.of("offset", 0, "insert", "x")))
+                .andExpect(status().isNotFound());
+    }
+}
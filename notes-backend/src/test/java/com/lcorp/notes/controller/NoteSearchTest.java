@@ -0,0 +1,112 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.service.NoteSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class NoteSearchTest extends NotesIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NoteSearchIndex noteSearchIndex;
+
+    private JsonNode search(String auth, String q) throws Exception {
+        return json(mvc.perform(get("/api/notes/search").header("Authorization", auth).param("q", q))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
+    @Test
+    void lastWordMatchesAsPrefixAndResultsAreMarkedUp() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Grocery <list>", "apples and bananas").get("id").asLong();
+        createNote(auth, "Reading", "a book about gardens");
+
+        JsonNode results = search(auth, "gro");
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).get("id").asLong()).isEqualTo(id);
+        assertThat(results.get(0).get("title").asText()).isEqualTo("<mark>Grocery</mark> &lt;list&gt;");
+
+        assertThat(search(auth, "apples banan")).hasSize(1);
+        assertThat(search(auth, "apples gardens")).isEmpty();
+    }
+
+    @Test
+    void userInputIsNeverParsedAsQuerySyntax() throws Exception {
+        String auth = signUp();
+        createNote(auth, "Syntax", "quotes \" and stars * and NOT OR AND");
+
+        for (String q : new String[]{"\"", "*", "NOT", "title:x", "(a OR", "NEAR(a b)", "-x ^y"}) {
+            search(auth, q);
+        }
+        assertThat(search(auth, "NOT")).hasSize(1);
+    }
+
+    @Test
+    void searchIsScopedToOwnerAndFollowsEdits() throws Exception {
+        String alice = signUp();
+        String bob = signUp();
+        long id = createNote(alice, "Secret plan", "zeppelin").get("id").asLong();
+
+        assertThat(search(alice, "zeppelin")).hasSize(1);
+        assertThat(search(bob, "zeppelin")).isEmpty();
+
+        mvc.perform(put("/api/notes/" + id).header("Authorization", alice)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("title", "Secret plan", "content", "airship"))))
+                .andExpect(status().isOk());
+        assertThat(search(alice, "zeppelin")).isEmpty();
+        assertThat(search(alice, "airship")).hasSize(1);
+
+        mvc.perform(delete("/api/notes/" + id).header("Authorization", alice))
+                .andExpect(status().is2xxSuccessful());
+        assertThat(search(alice, "airship")).isEmpty();
+    }
+
+    @Test
+    void snippetsAreCutAroundTheMatchesFromTheStoredText() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Trip", "We packed early and left before dawn, then drove north for hours "
+                + "and hours, until at last the café by the lake opened its doors and served us coffee and toast")
+                .get("id").asLong();
+
+        JsonNode results = search(auth, "cafe");
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).get("snippet").asText()).isEqualTo("&hellip;at last the <mark>caf&eacute;</mark> "
+                + "by the lake opened its doors and served us coffee and toast");
+        assertThat(results.get(0).get("title").asText()).isEqualTo("Trip");
+
+        // Only the index is stored, not a second copy of the note
+        assertThat(jdbcTemplate.queryForObject("SELECT content FROM notes_fts WHERE rowid = ?", String.class, id))
+                .isNull();
+    }
+
+    @Test
+    void anIndexThatStoresTextIsRebuiltOnStartup() throws Exception {
+        String auth = signUp();
+        createNote(auth, "Rebuilt", "lighthouse");
+        jdbcTemplate.execute("DROP TABLE notes_fts");
+        jdbcTemplate.execute("CREATE VIRTUAL TABLE notes_fts USING fts5(" +
+                "title, content, owner_id, folder_id, tokenize = 'unicode61 remove_diacritics 2')");
+
+        noteSearchIndex.afterSingletonsInstantiated();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT sql FROM sqlite_master WHERE name = 'notes_fts'", String.class))
+                .contains("contentless_delete");
+        assertThat(search(auth, "lighthouse")).hasSize(1);
+    }
+}
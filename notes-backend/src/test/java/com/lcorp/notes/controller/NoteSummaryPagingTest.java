@@ -0,0 +1,93 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.dto.NoteCursor;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.service.NotePreviewBackfill;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class NoteSummaryPagingTest extends NotesIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NotePreviewBackfill notePreviewBackfill;
+
+    @Test
+    void pagesVisitEveryNoteOnceInListOrder() throws Exception {
+        String auth = signUp();
+        for (int i = 0; i < 7; i++) {
+            createNote(auth, "Note " + i, "body " + i);
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (JsonNode note : json(mvc.perform(get("/api/notes").header("Authorization", auth)).andReturn())) {
+            expected.add(note.get("id").asLong());
+        }
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/notes").header("Authorization", auth).param("limit", "3");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = json(mvc.perform(request).andExpect(status().isOk()).andReturn());
+            assertThat(page.get("items").size()).isLessThanOrEqualTo(3);
+            for (JsonNode item : page.get("items")) {
+                assertThat(item.has("content")).isFalse();
+                paged.add(item.get("id").asLong());
+            }
+            cursor = page.hasNonNull("nextCursor") ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+
+        assertThat(expected).hasSize(7);
+        assertThat(paged).isEqualTo(expected);
+    }
+
+    @Test
+    void rejectsForeignCursorsAndLimits() throws Exception {
+        String auth = signUp();
+
+        mvc.perform(get("/api/notes").header("Authorization", auth).param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+        mvc.perform(get("/api/notes").header("Authorization", auth).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cursorRoundTrips() {
+        NoteCursor cursor = new NoteCursor(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_000_000), 42L);
+
+        assertThat(NoteCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(NoteCursor.decode("")).isNull();
+        assertThat(NoteCursor.decode("%%%")).isNull();
+    }
+
+    @Test
+    void notesWithoutAPreviewGetTheOneAnEditWouldStore() throws Exception {
+        String auth = signUp();
+        String content = "  first line\r\n\r\n\tsecond   line " + "x".repeat(300);
+        long id = createNote(auth, "Old", content).get("id").asLong();
+        jdbcTemplate.update("UPDATE notes SET preview = NULL WHERE id = ?", id);
+
+        notePreviewBackfill.afterSingletonsInstantiated();
+
+        String preview = jdbcTemplate.queryForObject("SELECT preview FROM notes WHERE id = ?", String.class, id);
+        assertThat(preview).isEqualTo(Note.previewOf(content)).startsWith("first line second line x").hasSize(200);
+    }
+}
@@ -0,0 +1,144 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.service.NoteRevisions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RevisionsTest extends NotesIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NoteRevisions noteRevisions;
+
+    private void update(String auth, long noteId, String title, String content) throws Exception {
+        mvc.perform(put("/api/notes/" + noteId)
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("title", title, "content", content))))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode revisions(String auth, long noteId) throws Exception {
+        return json(mvc.perform(get("/api/notes/" + noteId + "/revisions").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
+    private JsonNode revision(String auth, long noteId, int revision) throws Exception {
+        return json(mvc.perform(get("/api/notes/" + noteId + "/revisions/" + revision).header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
+    // As if the newest revision had been made longer than min-interval ago
+    private void ageRevisions(long noteId) {
+        jdbcTemplate.update("UPDATE note_revisions SET created_at = datetime(created_at / 1000 - 3600, 'unixepoch') " +
+                "WHERE note_id = ?", noteId);
+    }
+
+    private void setSavedAt(long noteId, int revision, LocalDateTime savedAt) {
+        jdbcTemplate.update("UPDATE note_revisions SET created_at = ? WHERE note_id = ? AND revision = ?",
+                savedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), noteId, revision);
+    }
+
+    private static String body(int version) {
+        return ("Paragraph that stays the same across versions. ").repeat(20) + "version " + version;
+    }
+
+    @Test
+    void keepsReplacedStatesAndRestoresThem() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Draft", body(1)).get("id").asLong();
+
+        update(auth, id, "Draft", body(2));
+        ageRevisions(id);
+        update(auth, id, "Final", body(3));
+        // Too soon after the last revision: the state it replaces is not kept
+        update(auth, id, "Final", body(4));
+
+        JsonNode list = revisions(auth, id);
+        assertThat(list).extracting(revision -> revision.get("revision").asInt()).containsExactly(2, 1);
+        assertThat(list.get(0).hasNonNull("content")).isFalse();
+
+        JsonNode first = revision(auth, id, 1);
+        assertThat(first.get("title").asText()).isEqualTo("Draft");
+        assertThat(first.get("content").asText()).isEqualTo(body(1));
+        assertThat(revision(auth, id, 2).get("content").asText()).isEqualTo(body(2));
+
+        mvc.perform(post("/api/notes/" + id + "/revisions/1/restore").header("Authorization", auth))
+                .andExpect(status().isOk());
+        JsonNode note = json(mvc.perform(get("/api/notes/" + id).header("Authorization", auth)).andReturn());
+        assertThat(note.get("title").asText()).isEqualTo("Draft");
+        assertThat(note.get("content").asText()).isEqualTo(body(1));
+        assertThat(revision(auth, id, 1).get("content").asText()).isEqualTo(body(1));
+        assertThat(revision(auth, id, 2).get("content").asText()).isEqualTo(body(2));
+    }
+
+    @Test
+    void thinningKeepsTheNewestRevisionPerTier() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Note", body(1)).get("id").asLong();
+        for (int version = 2; version <= 4; version++) {
+            update(auth, id, "Note", body(version));
+            ageRevisions(id);
+        }
+
+        LocalDateTime twoDaysAgo = LocalDateTime.now().minusDays(2).truncatedTo(ChronoUnit.HOURS);
+        setSavedAt(id, 1, LocalDateTime.now().minusDays(100));
+        setSavedAt(id, 2, twoDaysAgo.plusMinutes(10));
+        setSavedAt(id, 3, twoDaysAgo.plusMinutes(40));
+
+        // Each run covers a batch of notes per shard, other tests' included
+        for (int run = 0; run < 5 && revisions(auth, id).size() > 1; run++) {
+            noteRevisions.thin();
+        }
+
+        assertThat(revisions(auth, id)).extracting(revision -> revision.get("revision").asInt()).containsExactly(3);
+        assertThat(revision(auth, id, 3).get("content").asText()).isEqualTo(body(3));
+    }
+
+    @Test
+    void favoritingDoesNotMakeARevision() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Title", "text").get("id").asLong();
+
+        mvc.perform(post("/api/notes/" + id + "/favorite").header("Authorization", auth))
+                .andExpect(status().isOk());
+
+        assertThat(revisions(auth, id)).isEmpty();
+    }
+
+    @Test
+    void revisionsOfOtherUsersAreNotFound() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Mine", "one").get("id").asLong();
+        update(auth, id, "Mine", "two");
+
+        String other = signUp();
+        mvc.perform(get("/api/notes/" + id + "/revisions").header("Authorization", other))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/api/notes/" + id + "/revisions/1").header("Authorization", other))
+                .andExpect(status().isNotFound());
+        mvc.perform(post("/api/notes/" + id + "/revisions/1/restore").header("Authorization", other))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/api/notes/" + id + "/revisions/9").header("Authorization", auth))
+                .andExpect(status().isNotFound());
+    }
+}
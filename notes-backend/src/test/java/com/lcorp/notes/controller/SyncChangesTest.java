@@ -0,0 +1,96 @@
+package com.lcorp.notes.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.service.ChangeTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SyncChangesTest extends NotesIntegrationTest {
+
+    @Autowired
+    private ChangeTracker changeTracker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JsonNode changes(String auth, String since) throws Exception {
+        var request = get("/api/sync/changes").header("Authorization", auth);
+        if (since != null) {
+            request.param("since", since);
+        }
+        return json(mvc.perform(request).andExpect(status().isOk()).andReturn());
+    }
+
+    private void deleteNote(String auth, long id) throws Exception {
+        mvc.perform(delete("/api/notes/" + id).header("Authorization", auth)).andExpect(status().is2xxSuccessful());
+    }
+
+    @Test
+    void deltasCarryChangesAndDeletesAfterTheCursor() throws Exception {
+        String auth = signUp();
+        long first = createNote(auth, "First", "").get("id").asLong();
+        JsonNode snapshot = changes(auth, null);
+        assertThat(snapshot.get("full").asBoolean()).isTrue();
+        assertThat(snapshot.get("notes")).hasSize(1);
+
+        long second = createNote(auth, "Second", "").get("id").asLong();
+        deleteNote(auth, first);
+
+        JsonNode delta = changes(auth, snapshot.get("cursor").asText());
+        assertThat(delta.get("full").asBoolean()).isFalse();
+        assertThat(delta.get("notes")).extracting(note -> note.get("id").asLong()).containsExactly(second);
+        assertThat(delta.get("deletedNoteIds")).extracting(JsonNode::asLong).containsExactly(first);
+
+        JsonNode nothing = changes(auth, delta.get("cursor").asText());
+        assertThat(nothing.get("notes")).isEmpty();
+        assertThat(nothing.get("deletedNoteIds")).isEmpty();
+    }
+
+    @Test
+    void cursorsOlderThanPrunedTombstonesGetAFullSnapshot() throws Exception {
+        String auth = signUp();
+        long old = createNote(auth, "Old", "").get("id").asLong();
+        long recent = createNote(auth, "Recent", "").get("id").asLong();
+        long kept = createNote(auth, "Kept", "").get("id").asLong();
+        String staleCursor = changes(auth, null).get("cursor").asText();
+
+        deleteNote(auth, old);
+        jdbcTemplate.update("UPDATE tombstones SET deleted_at = ? WHERE entity_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusYears(1)), old);
+        String freshCursor = changes(auth, staleCursor).get("cursor").asText();
+        deleteNote(auth, recent);
+
+        changeTracker.pruneTombstones();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM tombstones WHERE entity_id IN (?, ?)", Integer.class, old, recent)).isEqualTo(1);
+
+        JsonNode resync = changes(auth, staleCursor);
+        assertThat(resync.get("full").asBoolean()).isTrue();
+        assertThat(resync.get("notes")).extracting(note -> note.get("id").asLong()).containsExactly(kept);
+
+        JsonNode delta = changes(auth, freshCursor);
+        assertThat(delta.get("full").asBoolean()).isFalse();
+        assertThat(delta.get("deletedNoteIds")).extracting(JsonNode::asLong).containsExactly(recent);
+    }
+
+    @Test
+    void deletedAccountsSyncNothing() throws Exception {
+        String auth = signUp();
+        String cursor = changes(auth, null).get("cursor").asText();
+        createNote(auth, "Gone", "");
+        mvc.perform(delete("/api/profile").header("Authorization", auth)).andExpect(status().isOk());
+
+        assertThat(changes(auth, cursor).get("notes")).isEmpty();
+    }
+}
@@ -0,0 +1,51 @@
+package com.lcorp.notes.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteResponseTest {
+
+    private static Note note(Folder folder) {
+        Note note = new Note();
+        note.setId(7L);
+        note.setTitle("Title");
+        note.setContent("Body");
+        note.setIsFavorite(true);
+        note.setFolder(folder);
+        note.setUpdatedAt(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        note.setChangeVersion(42L);
+        return note;
+    }
+
+    @Test
+    void mapsEveryField() {
+        Folder folder = new Folder();
+        folder.setId(3L);
+
+        NoteResponse response = NoteResponse.of(note(folder));
+
+        assertThat(response).isEqualTo(new NoteResponse(
+                7L, "Title", "Body", true, 3L, LocalDateTime.of(2024, 1, 2, 3, 4, 5), 42L));
+        assertThat(NoteResponse.of(note(null)).getFolderId()).isNull();
+    }
+
+    @Test
+    void serializesWithTheApiFieldNames() {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        JsonNode json = mapper.valueToTree(NoteResponse.of(note(null)));
+
+        assertThat(json.get("isFavorite").asBoolean()).isTrue();
+        assertThat(json.has("folderId")).isTrue();
+        assertThat(json.get("version").asLong()).isEqualTo(42L);
+        assertThat(json.has("favorite")).isFalse();
+    }
+}
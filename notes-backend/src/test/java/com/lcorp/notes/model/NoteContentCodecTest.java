@@ -0,0 +1,73 @@
+package com.lcorp.notes.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NoteContentCodecTest {
+
+    private static final String LARGE = "Grüße, 世界 – a line that repeats.\n".repeat(400);
+
+    @BeforeEach
+    void enable() {
+        NoteContentCodec.configure(true, 1024);
+    }
+
+    // Back to application.properties, which the other tests run with
+    @AfterEach
+    void restore() {
+        NoteContentCodec.configure(false, 4096);
+    }
+
+    @Test
+    void largeTextRoundTrips() {
+        byte[] packed = NoteContentCodec.pack(LARGE);
+
+        assertThat(packed).isNotNull();
+        assertThat(packed[0]).isEqualTo(NoteContentCodec.DEFLATE);
+        assertThat(packed.length).isLessThan(LARGE.getBytes(StandardCharsets.UTF_8).length / 10);
+        assertThat(NoteContentCodec.unpack(packed)).isEqualTo(LARGE);
+    }
+
+    @Test
+    void leavesTextPlainWhenPackingDoesNotPay() {
+        assertThat(NoteContentCodec.pack("short")).isNull();
+        assertThat(NoteContentCodec.pack(null)).isNull();
+        // 3 bytes of UTF-8 each, but still under the threshold
+        assertThat(NoteContentCodec.pack("界".repeat(341))).isNull();
+
+        NoteContentCodec.configure(false, 1024);
+        assertThat(NoteContentCodec.pack(LARGE)).isNull();
+    }
+
+    @Test
+    void rejectsDamagedData() {
+        byte[] packed = NoteContentCodec.pack(LARGE);
+
+        assertThatThrownBy(() -> NoteContentCodec.unpack(new byte[0])).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> NoteContentCodec.unpack(new byte[]{42, 1, 2})).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> NoteContentCodec.unpack(Arrays.copyOf(packed, packed.length / 2)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void noteStoresLargeBodiesPacked() {
+        Note note = new Note();
+        note.setContent(LARGE);
+
+        assertThat(note.getContentPacked()).isNotNull();
+        assertThat(note.getContentLength()).isEqualTo(LARGE.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(note.getContent()).isEqualTo(LARGE);
+
+        note.setContent("small again");
+        assertThat(note.getContentPacked()).isNull();
+        assertThat(note.getContentLength()).isNull();
+        assertThat(note.getContent()).isEqualTo("small again");
+    }
+}
@@ -0,0 +1,76 @@
+package com.lcorp.notes.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevisionCodecTest {
+
+    private static final String ALPHABET = "abcdefghij klmnop\nqrstuvwxyzäöü€😀";
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            int start = random.nextInt(ALPHABET.length());
+            text.append(Character.isLowSurrogate(ALPHABET.charAt(start)) ? 'x' : ALPHABET.charAt(start));
+        }
+        return text.toString();
+    }
+
+    // Inserts, deletes and replaces a few spans, the way edits between saves do
+    private static String edit(Random random, String text) {
+        StringBuilder edited = new StringBuilder(text);
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            int at = edited.length() == 0 ? 0 : random.nextInt(edited.length());
+            int end = Math.min(edited.length(), at + random.nextInt(40));
+            switch (random.nextInt(3)) {
+                case 0 -> edited.insert(at, text(random, 1 + random.nextInt(30)));
+                case 1 -> edited.delete(at, end);
+                default -> edited.replace(at, end, text(random, random.nextInt(30)));
+            }
+        }
+        return edited.toString();
+    }
+
+    @Test
+    void fullRevisionsRoundTrip() {
+        for (String text : new String[]{"", "short", "ünïcödé 😀 text", "x".repeat(100_000)}) {
+            assertThat(RevisionCodec.unpackFull(RevisionCodec.full(text))).isEqualTo(text);
+        }
+    }
+
+    @Test
+    void deltasRebuildTheOlderText() {
+        Random random = new Random(24);
+        for (int round = 0; round < 500; round++) {
+            String older = text(random, random.nextInt(2000));
+            String newer = edit(random, older);
+
+            assertThat(RevisionCodec.apply(newer, RevisionCodec.delta(newer, older)))
+                    .as("round %d", round)
+                    .isEqualTo(older);
+        }
+    }
+
+    @Test
+    void deltasHandleEmptyAndUnrelatedTexts() {
+        String[][] pairs = {{"", ""}, {"", "was empty"}, {"now empty", ""}, {"abc", "abc"},
+                {"completely different", "nothing alike at all"}, {"😀😀", "😀x😀"}};
+        for (String[] pair : pairs) {
+            assertThat(RevisionCodec.apply(pair[0], RevisionCodec.delta(pair[0], pair[1]))).isEqualTo(pair[1]);
+        }
+    }
+
+    @Test
+    void smallEditsMakeSmallDeltas() {
+        Random random = new Random(7);
+        String older = text(random, 20_000);
+        String newer = older.substring(0, 9_000) + "a new sentence in the middle. " + older.substring(9_000);
+
+        byte[] delta = RevisionCodec.delta(newer, older);
+
+        assertThat(delta.length).isLessThan(100).isLessThan(RevisionCodec.full(older).length / 10);
+    }
+}
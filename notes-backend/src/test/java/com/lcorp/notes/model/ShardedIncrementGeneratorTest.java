@@ -0,0 +1,66 @@
+package com.lcorp.notes.model;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.config.Shards;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ShardedIncrementGeneratorTest extends NotesIntegrationTest {
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // What a restart does to the generator
+    private void restart() {
+        ShardedIncrementGenerator.configure(shards::max, userDirectory::reserveIds);
+    }
+
+    private long createNote(String auth) throws Exception {
+        return createNote(auth, "Id", "").get("id").asLong();
+    }
+
+    @Test
+    void deletedIdsAreNotHandedOutAgainAfterRestart() throws Exception {
+        String auth = signUp();
+        long newest = createNote(auth);
+        mvc.perform(delete("/api/notes/" + newest).header("Authorization", auth))
+                .andExpect(status().is2xxSuccessful());
+
+        restart();
+
+        assertThat(createNote(auth)).isGreaterThan(newest);
+    }
+
+    @Test
+    void startsPastTheOldHibernateSequence() throws Exception {
+        String auth = signUp();
+        long before = createNote(auth);
+        long legacyNext = before + 10 * ShardedIncrementGenerator.BLOCK_SIZE;
+
+        jdbcTemplate.execute("CREATE TABLE notes_seq (next_val bigint)");
+        try {
+            jdbcTemplate.update("INSERT INTO notes_seq VALUES (?)", legacyNext);
+            restart();
+            assertThat(createNote(auth)).isGreaterThanOrEqualTo(legacyNext);
+        } finally {
+            jdbcTemplate.execute("DROP TABLE notes_seq");
+        }
+    }
+
+    @Test
+    void reservationsOnlyMoveForward() {
+        long first = userDirectory.reserveIds("test", 10, 5);
+        assertThat(first).isEqualTo(10);
+        assertThat(userDirectory.reserveIds("test", 1, 5)).isEqualTo(15);
+        assertThat(userDirectory.reserveIds("test", 100, 5)).isEqualTo(100);
+        assertThat(userDirectory.reserveIds("test", 0, 1)).isEqualTo(105);
+    }
+}
@@ -0,0 +1,159 @@
+package com.lcorp.notes.repository;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.dto.NoteCursor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs every owner-scoped repository query once, captures the SQL Hibernate
+// generated for it and fails if SQLite would answer it with a table scan or a
+// temporary sort. Keeps the queries and the indexes in schema.sql in step.
+class QueryPlanTest extends NotesIntegrationTest {
+
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    @TestConfiguration
+    static class CapturingInspector {
+
+        @Bean
+        HibernatePropertiesCustomizer capturingStatementInspector() {
+            StatementInspector inspector = sql -> {
+                List<String> captured = CAPTURED.get();
+                if (captured != null) {
+                    captured.add(sql);
+                }
+                return sql;
+            };
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void ownerScopedQueriesUseAnIndex() {
+        Long owner = 0L;
+        NoteCursor cursor = new NoteCursor(LocalDateTime.now(), Long.MAX_VALUE);
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("notes by owner", () -> noteRepository.findByOwnerIdOrderByUpdatedAtDesc(owner));
+        queries.put("notes by folder", () -> noteRepository.findByOwnerIdAndFolderIdOrderByUpdatedAtDesc(owner, 0L));
+        queries.put("favorite notes", () -> noteRepository.findByOwnerIdAndIsFavoriteTrueOrderByUpdatedAtDesc(owner));
+        queries.put("note by id", () -> noteRepository.findByIdAndOwnerId(0L, owner));
+        queries.put("notes by ids", () -> noteRepository.findByOwnerIdAndIdIn(owner, List.of(0L, 1L)));
+        queries.put("notes changed", () -> noteRepository.findByOwnerIdAndChangeVersionBetween(owner, 0L, 1L));
+        queries.put("notes changed count", () -> noteRepository.countByOwnerIdAndChangeVersionBetween(owner, 0L, 1L));
+        queries.put("note titles", () -> noteRepository.findTitlesByOwnerId(owner));
+        queries.put("note export chunk", () -> {
+            try (Stream<?> notes = noteRepository.streamByOwnerIdAfter(owner, 0L, Limit.of(1))) {
+                notes.count();
+            }
+        });
+        queries.put("note summaries", () -> noteRepository.findSummaries(owner, null, false, null, 1));
+        queries.put("note summaries after cursor", () -> noteRepository.findSummaries(owner, null, false, cursor, 1));
+        queries.put("folder note summaries", () -> noteRepository.findSummaries(owner, 0L, false, cursor, 1));
+        queries.put("favorite note summaries", () -> noteRepository.findSummaries(owner, null, true, cursor, 1));
+        queries.put("delete notes by folder", () -> noteRepository.deleteByFolderId(0L));
+        queries.put("delete notes by owner", () -> noteRepository.deleteByOwnerId(owner));
+        queries.put("folders by owner", () -> folderRepository.findByOwnerIdOrderByCreatedAtDesc(owner));
+        queries.put("folder by id", () -> folderRepository.findByIdAndOwnerId(0L, owner));
+        queries.put("folders by ids", () -> folderRepository.findByOwnerIdAndIdIn(owner, List.of(0L, 1L)));
+        queries.put("folders changed", () -> folderRepository.findByOwnerIdAndChangeVersionBetween(owner, 0L, 1L));
+        queries.put("folder titles", () -> folderRepository.findTitlesByOwnerId(owner));
+        queries.put("delete folder", () -> folderRepository.deleteFolderById(0L));
+        queries.put("delete folders by owner", () -> folderRepository.deleteByOwnerId(owner));
+        queries.put("tombstones changed", () -> tombstoneRepository.findByOwnerIdAndChangeVersionBetween(owner, 0L, 1L));
+        queries.put("tombstones changed count", () -> tombstoneRepository.countByOwnerIdAndChangeVersionBetween(owner, 0L, 1L));
+        queries.put("delete tombstones by owner", () -> tombstoneRepository.deleteByOwnerId(owner));
+        queries.put("note revisions", () -> noteRevisionRepository.findByNoteIdOrderByRevisionDesc(0L));
+        queries.put("newest note revision", () -> noteRevisionRepository.findFirstByNoteIdOrderByRevisionDesc(0L));
+        queries.put("note revision chain", () -> noteRevisionRepository.findChain(0L, 1));
+        queries.put("note revision deltas on top", () -> noteRevisionRepository.countDeltasOnTop(0L));
+        queries.put("delete note revisions", () -> noteRevisionRepository.deleteByNoteIdIn(List.of(0L, 1L)));
+        queries.put("delete folder revisions", () -> noteRevisionRepository.deleteByFolderId(0L));
+        queries.put("delete revisions by owner", () -> noteRevisionRepository.deleteByOwnerId(owner));
+        queries.put("import jobs by owner", () -> importJobRepository.findByOwnerIdOrderByCreatedAtDesc(owner));
+        queries.put("import job by id", () -> importJobRepository.findByIdAndOwnerId(0L, owner));
+        queries.put("delete import jobs by owner", () -> importJobRepository.deleteByOwnerId(owner));
+        queries.put("user by email", () -> userRepository.findByEmail(""));
+        queries.put("pruned version", () -> userRepository.findPrunedVersionById(owner));
+
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            List<String> statements = capture(query.getValue());
+            assertThat(statements).as(query.getKey()).isNotEmpty();
+            for (String sql : statements) {
+                List<String> plan = explain(sql);
+                if (plan.stream().anyMatch(step -> step.startsWith("SCAN ") || step.contains("USE TEMP B-TREE"))) {
+                    failures.add(query.getKey() + ": " + String.join("; ", plan) + "\n    " + sql);
+                }
+            }
+        }
+
+        assertThat(failures).as("queries without a usable index").isEmpty();
+    }
+
+    // Deletes run too, so nothing is kept
+    private List<String> capture(Runnable query) {
+        List<String> captured = new ArrayList<>();
+        CAPTURED.set(captured);
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                query.run();
+            });
+        } finally {
+            CAPTURED.remove();
+        }
+        return captured;
+    }
+
+    // Values do not change the plan, except against partial indexes, whose
+    // conditions are written as literals in the query rather than bound
+    private List<String> explain(String sql) {
+        Object[] params = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        Arrays.fill(params, 0L);
+        return jdbcTemplate.query("EXPLAIN QUERY PLAN " + sql, (rs, rowNum) -> rs.getString("detail"), params);
+    }
+}
@@ -0,0 +1,98 @@
+package com.lcorp.notes.security;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FirebaseTokenVerifierTest {
+
+    private static final String PROJECT_ID = "notes-test";
+    private static final String KEY_ID = "key-1";
+
+    private final KeyPair keyPair = Jwts.SIG.RS256.keyPair().build();
+    private final FirebaseTokenVerifier verifier = new FirebaseTokenVerifier(PROJECT_ID, "http://127.0.0.1:9/keys");
+
+    FirebaseTokenVerifierTest() {
+        verifier.updatePublicKeys(Map.of(KEY_ID, keyPair.getPublic()));
+    }
+
+    private String token(UnaryOperator<JwtBuilder> customize) {
+        Instant now = Instant.now();
+        JwtBuilder builder = Jwts.builder()
+                .header().keyId(KEY_ID).and()
+                .issuer(FirebaseTokenVerifier.issuerFor(PROJECT_ID))
+                .audience().add(PROJECT_ID).and()
+                .subject("uid-1")
+                .claim("email", "a@example.com")
+                .issuedAt(Date.from(now.minusSeconds(10)))
+                .claim("auth_time", now.minusSeconds(60).getEpochSecond())
+                .expiration(Date.from(now.plus(Duration.ofHours(1))));
+        return customize.apply(builder).signWith(keyPair.getPrivate(), Jwts.SIG.RS256).compact();
+    }
+
+    @Test
+    void acceptsAWellFormedToken() {
+        FirebaseIdentity identity = verifier.verify(token(b -> b));
+
+        assertThat(identity.getUid()).isEqualTo("uid-1");
+        assertThat(identity.getEmail()).isEqualTo("a@example.com");
+    }
+
+    @Test
+    void allowsClockSkew() {
+        Instant now = Instant.now();
+        verifier.verify(token(b -> b
+                .issuedAt(Date.from(now.plusSeconds(60)))
+                .claim("auth_time", now.plusSeconds(60).getEpochSecond())
+                .expiration(Date.from(now.minusSeconds(60)))));
+    }
+
+    @Test
+    void rejectsTokensFirebaseWouldReject() {
+        Instant now = Instant.now();
+        KeyPair otherKey = Jwts.SIG.RS256.keyPair().build();
+
+        assertRejected(token(b -> b.subject(null)));
+        assertRejected(token(b -> b.subject("")));
+        assertRejected(token(b -> b.subject("u".repeat(129))));
+        assertRejected(token(b -> b.issuedAt(null)));
+        assertRejected(token(b -> b.issuedAt(Date.from(now.plus(Duration.ofHours(1))))));
+        assertRejected(token(b -> b.claim("auth_time", null)));
+        assertRejected(token(b -> b.claim("auth_time", now.plus(Duration.ofHours(1)).getEpochSecond())));
+        assertRejected(token(b -> b.expiration(Date.from(now.minus(Duration.ofHours(1))))));
+        assertRejected(token(b -> b.expiration(null)));
+        assertRejected(token(b -> b.audience().add("other-project").and()));
+        assertRejected(token(b -> b.issuer(FirebaseTokenVerifier.issuerFor("other-project"))));
+        assertRejected(token(b -> b.header().keyId("unknown").and()));
+        assertRejected(Jwts.builder()
+                .header().keyId(KEY_ID).and()
+                .issuer(FirebaseTokenVerifier.issuerFor(PROJECT_ID))
+                .audience().add(PROJECT_ID).and()
+                .subject("uid-1")
+                .issuedAt(new Date())
+                .claim("auth_time", now.getEpochSecond())
+                .expiration(Date.from(now.plus(Duration.ofHours(1))))
+                .signWith(otherKey.getPrivate(), Jwts.SIG.RS256)
+                .compact());
+        assertRejected(Jwts.builder()
+                .header().keyId(KEY_ID).and()
+                .subject("uid-1")
+                .signWith(Jwts.SIG.HS256.key().build())
+                .compact());
+    }
+
+    private void assertRejected(String token) {
+        assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(JwtException.class);
+    }
+}
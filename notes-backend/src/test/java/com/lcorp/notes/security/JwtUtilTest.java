@@ -0,0 +1,31 @@
+package com.lcorp.notes.security;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTest extends NotesIntegrationTest {
+
+    @Test
+    void tokensCarryTheUserId() {
+        String token = jwtUtil.generateToken(1234L);
+
+        assertThat(jwtUtil.parseUserId(token)).isEqualTo(1234L);
+        assertThat(jwtUtil.getUserIdFromToken(token)).isEqualTo(1234L);
+        assertThat(jwtUtil.validateToken(token)).isTrue();
+    }
+
+    @Test
+    void tamperedTokensAreRejected() {
+        String token = jwtUtil.generateToken(1234L);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThat(jwtUtil.parseUserId(tampered)).isNull();
+        assertThat(jwtUtil.parseUserId("not-a-token")).isNull();
+        assertThat(jwtUtil.validateToken(tampered)).isFalse();
+        assertThatThrownBy(() -> jwtUtil.getUserIdFromToken(tampered)).isInstanceOf(JwtException.class);
+    }
+}
@@ -0,0 +1,111 @@
+package com.lcorp.notes.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingPoolTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingPool pool;
+
+    // "block" holds its hashing thread until the test releases it
+    private final PasswordEncoder encoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if (rawPassword.toString().equals("block")) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (rawPassword.toString().equals("fail")) {
+                throw new IllegalArgumentException("bad input");
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+    };
+
+    private PasswordHashingPool pool(int queueCapacity, Duration maxWait) {
+        pool = new PasswordHashingPool(encoder, 1, queueCapacity, maxWait, meterRegistry);
+        return pool;
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("notes.auth.password.rejected").tag("reason", reason).counter().count();
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        pool.shutdown();
+    }
+
+    @Test
+    void hashesAndChecksOnItsOwnThreads() {
+        PasswordHashingPool pool = pool(4, Duration.ofSeconds(5));
+
+        String hash = pool.encode("secret");
+
+        assertThat(hash).isEqualTo("hash:secret");
+        assertThat(pool.matches("secret", hash)).isTrue();
+        assertThat(pool.matches("other", hash)).isFalse();
+        assertThatThrownBy(() -> pool.encode("fail")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(meterRegistry.get("notes.auth.password.wait").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void refusesWorkWhenTheQueueIsFull() throws Exception {
+        PasswordHashingPool pool = pool(1, Duration.ofSeconds(5));
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> pool.encode("block"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> pool.encode("queued"));
+        while (meterRegistry.get("notes.auth.password.queue").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> pool.encode("refused")).isInstanceOf(PasswordHashingPool.HashingRejectedException.class);
+        assertThat(rejected("queue-full")).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:block");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash:queued");
+    }
+
+    @Test
+    void givesUpOnWorkThatWaitsTooLong() throws Exception {
+        PasswordHashingPool pool = pool(4, Duration.ofMillis(100));
+        CompletableFuture.runAsync(() -> {
+            try {
+                pool.encode("block");
+            } catch (PasswordHashingPool.HashingRejectedException e) {
+                // Also over the limit, but it holds the thread regardless
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> pool.encode("late")).isInstanceOf(PasswordHashingPool.HashingRejectedException.class);
+        assertThat(rejected("timeout")).isGreaterThanOrEqualTo(1);
+        // Dropped from the queue rather than hashed later for nobody
+        assertThat(meterRegistry.get("notes.auth.password.queue").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,91 @@
+package com.lcorp.notes.security;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TokenAuthenticationFilterTest extends NotesIntegrationTest {
+
+    private static final String KEY_ID = "filter-test";
+    private static final KeyPair KEY_PAIR = Jwts.SIG.RS256.keyPair().build();
+
+    @Autowired
+    private FirebaseTokenVerifier firebaseTokenVerifier;
+
+    @Value("${firebase.project-id}")
+    private String projectId;
+
+    @BeforeEach
+    void trustTestKey() {
+        firebaseTokenVerifier.updatePublicKeys(Map.of(KEY_ID, KEY_PAIR.getPublic()));
+    }
+
+    private String firebaseToken(UnaryOperator<JwtBuilder> customize) {
+        Instant now = Instant.now();
+        JwtBuilder builder = Jwts.builder()
+                .header().keyId(KEY_ID).and()
+                .issuer(FirebaseTokenVerifier.issuerFor(projectId))
+                .audience().add(projectId).and()
+                .subject(UUID.randomUUID().toString())
+                .claim("email", UUID.randomUUID() + "@firebase.test")
+                .claim("email_verified", true)
+                .issuedAt(Date.from(now))
+                .claim("auth_time", now.getEpochSecond())
+                .expiration(Date.from(now.plus(Duration.ofHours(1))));
+        return "Bearer " + customize.apply(builder).signWith(KEY_PAIR.getPrivate(), Jwts.SIG.RS256).compact();
+    }
+
+    private int statusWith(String authorization) throws Exception {
+        var request = get("/api/notes");
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return mvc.perform(request).andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    void acceptsBothKindsOfToken() throws Exception {
+        mvc.perform(get("/api/notes").header("Authorization", signUp())).andExpect(status().isOk());
+
+        String firebase = firebaseToken(b -> b);
+        mvc.perform(get("/api/notes").header("Authorization", firebase)).andExpect(status().isOk());
+        // Second time from the token cache
+        mvc.perform(get("/api/notes").header("Authorization", firebase)).andExpect(status().isOk());
+    }
+
+    @Test
+    void firebaseTokensWithoutVerifiedEmailStayUnauthenticated() throws Exception {
+        int anonymous = statusWith(null);
+        assertThat(anonymous).isBetween(400, 499);
+
+        assertThat(statusWith(firebaseToken(b -> b.claim("email", null)))).isEqualTo(anonymous);
+        assertThat(statusWith(firebaseToken(b -> b.claim("email_verified", false)))).isEqualTo(anonymous);
+        assertThat(statusWith(firebaseToken(b -> b.claim("email_verified", null)))).isEqualTo(anonymous);
+    }
+
+    @Test
+    void badTokensStayUnauthenticated() throws Exception {
+        int anonymous = statusWith(null);
+
+        assertThat(statusWith("Bearer garbage")).isEqualTo(anonymous);
+        assertThat(statusWith("Bearer a.b.c")).isEqualTo(anonymous);
+        assertThat(statusWith(firebaseToken(b -> b.header().keyId("unknown").and()))).isEqualTo(anonymous);
+        assertThat(statusWith(firebaseToken(b -> b.claim("email", 42)))).isEqualTo(anonymous);
+    }
+}
@@ -0,0 +1,80 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.config.Shards;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DatabaseWriterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DatabaseWriter groupCommitWriter() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        DatabaseWriter writer = new DatabaseWriter(transactionManager, "wal", 16, 16,
+                new Shards("jdbc:sqlite:unused.sqlite3", 1, 0), meterRegistry);
+        writer.start();
+        return writer;
+    }
+
+    // stop() interrupts the writer thread, which must not cut a write short
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (latch.getCount() > 0) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void finishesQueuedWritesOnStopAndRefusesLaterOnes() throws Exception {
+        DatabaseWriter writer = groupCommitWriter();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> writer.write(() -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            return "running";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> writer.write(() -> "queued"));
+        while (meterRegistry.get("notes.db.write.queue").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+            try {
+                writer.stop();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        release.countDown();
+
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+        stopped.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> writer.write(() -> "late"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("stopped");
+    }
+}
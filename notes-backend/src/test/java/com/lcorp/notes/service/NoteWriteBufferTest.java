@@ -0,0 +1,119 @@
+package com.lcorp.notes.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "notes.write-buffer.enabled=true",
+        "notes.write-buffer.quiet-period=PT2S",
+        "notes.write-buffer.max-delay=PT10S"
+})
+class NoteWriteBufferTest extends NotesIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ResultActions update(String auth, long noteId, Map<String, Object> body) throws Exception {
+        return mvc.perform(put("/api/notes/" + noteId)
+                .header("Authorization", auth)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body)));
+    }
+
+    private long storedVersion(long noteId) {
+        return jdbcTemplate.queryForObject("SELECT change_version FROM notes WHERE id = ?", Long.class, noteId);
+    }
+
+    private int revisionCount(long noteId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM note_revisions WHERE note_id = ?", Integer.class, noteId);
+    }
+
+    @Test
+    void mergesAutosavesIntoOneWrite() throws Exception {
+        String auth = signUp();
+        JsonNode created = createNote(auth, "Draft", "start");
+        long id = created.get("id").asLong();
+        long version = storedVersion(id);
+
+        JsonNode last = null;
+        for (int i = 1; i <= 5; i++) {
+            last = json(update(auth, id, Map.of("title", "Draft", "content", "draft " + i))
+                    .andExpect(status().isOk())
+                    .andReturn());
+        }
+
+        assertThat(last.get("content").asText()).isEqualTo("draft 5");
+        assertThat(last.hasNonNull("version")).isFalse();
+        assertThat(storedVersion(id)).isEqualTo(version);
+
+        // Any other request of the owner writes their pending notes first
+        JsonNode read = json(mvc.perform(get("/api/notes/" + id).header("Authorization", auth)).andReturn());
+        assertThat(read.get("content").asText()).isEqualTo("draft 5");
+        assertThat(read.get("version").asLong()).isEqualTo(storedVersion(id)).isGreaterThan(version);
+        assertThat(revisionCount(id)).isEqualTo(1);
+
+        JsonNode search = json(mvc.perform(get("/api/notes/search").header("Authorization", auth).param("q", "draft"))
+                .andReturn());
+        assertThat(search).extracting(result -> result.get("id").asLong()).containsExactly(id);
+    }
+
+    @Test
+    void writesQuietNotesInTheBackground() throws Exception {
+        String auth = signUp();
+        long id = createNote(auth, "Quiet", "before").get("id").asLong();
+        long version = storedVersion(id);
+
+        update(auth, id, Map.of("content", "after")).andExpect(status().isOk());
+
+        long deadline = System.nanoTime() + 15_000_000_000L;
+        while (storedVersion(id) == version && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(storedVersion(id)).isGreaterThan(version);
+    }
+
+    @Test
+    void folderMovesAreWrittenDirectly() throws Exception {
+        String auth = signUp();
+        long folder = json(mvc.perform(post("/api/folders")
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", "Target"))))
+                .andReturn()).get("id").asLong();
+        long id = createNote(auth, "Moved", "").get("id").asLong();
+        update(auth, id, Map.of("title", "Moved and renamed")).andExpect(status().isOk());
+
+        Map<String, Object> move = new HashMap<>();
+        move.put("folderId", folder);
+        JsonNode moved = json(update(auth, id, move).andExpect(status().isOk()).andReturn());
+
+        assertThat(moved.get("folderId").asLong()).isEqualTo(folder);
+        assertThat(moved.get("title").asText()).isEqualTo("Moved and renamed");
+        assertThat(moved.get("version").asLong()).isEqualTo(storedVersion(id));
+    }
+
+    @Test
+    void notesOfOtherUsersAreNotFound() throws Exception {
+        long id = createNote(signUp(), "Private", "mine").get("id").asLong();
+
+        update(signUp(), id, Map.of("content", "theirs")).andExpect(status().isNotFound());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT title FROM notes WHERE id = ?", String.class, id))
+                .isEqualTo("Private");
+    }
+}
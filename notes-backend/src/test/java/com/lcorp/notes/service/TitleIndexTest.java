@@ -0,0 +1,109 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.dto.TitleMatch;
+import com.lcorp.notes.event.NoteChangedEvent;
+import com.lcorp.notes.model.Note;
+import com.lcorp.notes.model.User;
+import com.lcorp.notes.repository.FolderRepository;
+import com.lcorp.notes.repository.NoteRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TitleIndexTest {
+
+    private static final long USER_ID = 7L;
+    private static final String[] WORDS = {"alpha", "Alps", "beta", "Bét", "gamma", "game", "g"};
+
+    private final NoteRepository noteRepository = mock(NoteRepository.class);
+    private final FolderRepository folderRepository = mock(FolderRepository.class);
+    private final TitleIndex index = new TitleIndex(noteRepository, folderRepository, 10);
+
+    private void fire(NoteChangedEvent.Type type, long id, String title) {
+        User owner = new User();
+        owner.setId(USER_ID);
+        Note note = new Note();
+        note.setId(id);
+        note.setOwner(owner);
+        note.setTitle(title);
+        index.onNoteChanged(new NoteChangedEvent(type, note));
+    }
+
+    private List<Long> complete(String prefix, int limit) {
+        return index.completeNotes(USER_ID, prefix, limit).stream().map(TitleMatch::getId).toList();
+    }
+
+    @Test
+    void titleStartsRankBeforeLaterWords() {
+        when(noteRepository.findTitlesByOwnerId(USER_ID)).thenReturn(List.of(
+                new TitleMatch(1L, "Weekly plan"),
+                new TitleMatch(2L, "Plan B"),
+                new TitleMatch(3L, "Plán A")));
+
+        assertThat(complete("pla", 10)).containsExactly(3L, 2L, 1L);
+        assertThat(complete("pla", 2)).containsExactly(3L, 2L);
+
+        fire(NoteChangedEvent.Type.UPDATED, 3L, "Other");
+        fire(NoteChangedEvent.Type.CREATED, 4L, "Plan A");
+        fire(NoteChangedEvent.Type.DELETED, 2L, "Plan B");
+        assertThat(complete("plan", 10)).containsExactly(4L, 1L);
+    }
+
+    @Test
+    void editsMatchAFreshLoad() {
+        Map<Long, String> titles = new HashMap<>();
+        when(noteRepository.findTitlesByOwnerId(USER_ID)).thenReturn(List.of());
+        complete("", 1);
+
+        Random random = new Random(42);
+        for (int step = 0; step < 2000; step++) {
+            long id = random.nextInt(40);
+            if (random.nextInt(4) == 0) {
+                fire(NoteChangedEvent.Type.DELETED, id, titles.getOrDefault(id, ""));
+                titles.remove(id);
+            } else {
+                StringBuilder title = new StringBuilder();
+                for (int w = random.nextInt(4); w >= 0; w--) {
+                    title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                fire(titles.containsKey(id) ? NoteChangedEvent.Type.UPDATED : NoteChangedEvent.Type.CREATED,
+                        id, title.toString().trim());
+                titles.put(id, title.toString().trim());
+            }
+
+            String word = TitleIndex.normalize(WORDS[random.nextInt(WORDS.length)]);
+            String prefix = random.nextBoolean() ? "" : word.substring(0, Math.min(word.length(), 1 + random.nextInt(2)));
+            assertThat(new HashSet<>(complete(prefix, 1000))).isEqualTo(expected(titles, prefix));
+        }
+
+        List<TitleMatch> snapshot = new ArrayList<>();
+        titles.forEach((id, title) -> snapshot.add(new TitleMatch(id, title)));
+        TitleIndex fresh = new TitleIndex(noteRepository, folderRepository, 10);
+        when(noteRepository.findTitlesByOwnerId(USER_ID)).thenReturn(snapshot);
+        for (String prefix : new String[]{"", "a", "al", "b", "be", "g", "ga", "game", "gamma a"}) {
+            assertThat(complete(prefix, 1000)).isEqualTo(
+                    fresh.completeNotes(USER_ID, prefix, 1000).stream().map(TitleMatch::getId).toList());
+        }
+    }
+
+    private static Set<Long> expected(Map<Long, String> titles, String prefix) {
+        Set<Long> ids = new HashSet<>();
+        titles.forEach((id, title) -> {
+            String key = TitleIndex.normalize(title);
+            if (key.startsWith(prefix) || key.contains(" " + prefix)) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,118 @@
+package com.lcorp.notes.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.dto.FolderResponse;
+import com.lcorp.notes.event.FolderChangedEvent;
+import com.lcorp.notes.model.Folder;
+import com.lcorp.notes.repository.FolderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserDataCacheTest extends NotesIntegrationTest {
+
+    @Autowired
+    private UserDataCache userDataCache;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long userId(String auth) throws Exception {
+        return json(mvc.perform(get("/api/profile").header("Authorization", auth)).andReturn()).get("id").asLong();
+    }
+
+    private long createFolder(String auth, String name) throws Exception {
+        return json(mvc.perform(post("/api/folders")
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", name))))
+                .andExpect(status().isCreated())
+                .andReturn()).get("id").asLong();
+    }
+
+    private List<FolderResponse> stored(long userId) {
+        return folderRepository.findByOwnerIdOrderByCreatedAtDesc(userId).stream()
+                .map(folder -> new FolderResponse(folder.getId(), folder.getName(), folder.getCreatedAt()))
+                .toList();
+    }
+
+    @Test
+    void cachedFoldersFollowEveryChange() throws Exception {
+        String auth = signUp();
+        long userId = userId(auth);
+        long first = createFolder(auth, "First");
+        assertThat(userDataCache.folders(userId)).isEqualTo(stored(userId));
+
+        long second = createFolder(auth, "Second");
+        assertThat(userDataCache.folders(userId)).isEqualTo(stored(userId));
+
+        mvc.perform(put("/api/folders/" + first)
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", "Renamed"))))
+                .andExpect(status().isOk());
+        assertThat(userDataCache.folders(userId)).isEqualTo(stored(userId));
+
+        mvc.perform(delete("/api/folders/" + second).header("Authorization", auth)).andExpect(status().isOk());
+        assertThat(userDataCache.folders(userId)).isEqualTo(stored(userId))
+                .extracting(FolderResponse::getName).containsExactly("Renamed");
+
+        JsonNode listed = json(mvc.perform(get("/api/folders").header("Authorization", auth)).andReturn());
+        assertThat(listed).extracting(folder -> folder.get("name").asText()).containsExactly("Renamed");
+    }
+
+    @Test
+    void rolledBackChangesLeaveTheCacheAlone() throws Exception {
+        String auth = signUp();
+        long userId = userId(auth);
+        long folderId = createFolder(auth, "Kept");
+        List<FolderResponse> cached = userDataCache.folders(userId);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            Folder folder = folderRepository.findByIdAndOwnerId(folderId, userId).orElseThrow();
+            eventPublisher.publishEvent(new FolderChangedEvent(FolderChangedEvent.Type.DELETED, folder));
+            status.setRollbackOnly();
+        });
+
+        assertThat(userDataCache.folders(userId)).isSameAs(cached);
+    }
+
+    @Test
+    void profileChangesAreSeenOnTheNextRead() throws Exception {
+        String auth = signUp();
+        long userId = userId(auth);
+        assertThat(userDataCache.profile(userId).name()).isEqualTo("Test");
+
+        mvc.perform(put("/api/profile")
+                        .header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", "Changed"))))
+                .andExpect(status().isOk());
+        assertThat(userDataCache.profile(userId).name()).isEqualTo("Changed");
+
+        mvc.perform(delete("/api/profile").header("Authorization", auth)).andExpect(status().isOk());
+        assertThat(userDataCache.profile(userId)).isNull();
+        assertThat(userDataCache.folders(userId)).isEmpty();
+    }
+}
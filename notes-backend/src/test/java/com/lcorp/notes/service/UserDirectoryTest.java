@@ -0,0 +1,53 @@
+package com.lcorp.notes.service;
+
+import com.lcorp.notes.NotesIntegrationTest;
+import com.lcorp.notes.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserDirectoryTest extends NotesIntegrationTest {
+
+    private static String email() {
+        return UUID.randomUUID() + "@test.local";
+    }
+
+    @Test
+    void deletedAccountsKeepTheirIds() throws Exception {
+        User deleted = userDirectory.create(email(), "Gone", "");
+        mvc.perform(delete("/api/profile").header("Authorization", "Bearer " + jwtUtil.generateToken(deleted.getId())))
+                .andExpect(status().isOk());
+
+        User next = userDirectory.create(email(), "Next", "");
+
+        assertThat(next.getId()).isGreaterThan(deleted.getId());
+    }
+
+    @Test
+    void registeredEmailsAreRefused() {
+        String email = email();
+        User first = userDirectory.create(email, "First", "");
+
+        assertThat(userDirectory.create(email, "Second", "")).isNull();
+        assertThat(userDirectory.findByEmail(email)).map(User::getId).contains(first.getId());
+        assertThat(userDirectory.findOrCreate(email, "Third").getId()).isEqualTo(first.getId());
+    }
+
+    @Test
+    void concurrentSignUpsGetDistinctIds() {
+        List<CompletableFuture<User>> signUps = IntStream.range(0, 20)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> userDirectory.create(email(), "User " + i, "")))
+                .toList();
+
+        List<Long> ids = signUps.stream().map(CompletableFuture::join).map(User::getId).toList();
+
+        assertThat(ids).doesNotHaveDuplicates().doesNotContainNull();
+    }
+}
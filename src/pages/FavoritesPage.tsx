@@ -26,8 +26,8 @@ export default function FavoritesPage() {
     const loadFavNotes = async () => {
         setLoading(true);
         try {
-            const allNotes = await apiFetch<Note[]>('/notes');
-            setNotes(allNotes.filter((note) => note.isFavorite));
+            const favNotes = await apiFetch<Note[]>('/notes?favorite=true');
+            setNotes(favNotes);
         } catch (error) {
             setError((error as Error).message);
         } finally {